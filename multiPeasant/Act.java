@@ -1,7 +1,124 @@
+import java.util.List;
+
+import edu.cwru.sepia.environment.model.state.ResourceType;
+
 //import edu.cwru.sepia.action.Action;
 
 public abstract class Act {
 	
+	public enum Kind {
+		GOTO_RESOURCE, GOTO_RESOURCE2, GOTO_RESOURCE3,
+		GOTO_TOWNHALL, GOTO_TOWNHALL2, GOTO_TOWNHALL3,
+		GATHER, GATHER2, GATHER3,
+		DEPOSIT, DEPOSIT2, DEPOSIT3,
+		BUILD_PEASANT,
+		MACRO
+	}
+	
+	private final Kind kind;
+	
+	protected Act(Kind kind) {
+		this.kind = kind;
+	}
+	
+	/**
+	 * 
+	 * @return The type of the act, for dispatch without class lookups
+	 */
+	public Kind getKind() {
+		return kind;
+	}
+	
 //	public abstract Action act(int peasantId);
+	
+	/**
+	 * Applies the add and delete effects of the act to a packed state.
+	 * 
+	 * @param state - The state the act is applied in
+	 * @param encoding - Maps the act's unit IDs to peasant slots
+	 * @return The resulting state
+	 */
+	public abstract long apply(long state, PackedState encoding);
+	
+	/**
+	 * The fields apply may change, so that the hash of the result can be
+	 * updated from the state's without looking at the others.
+	 * 
+	 * @param state - The state the act is applied in
+	 * @param encoding - Maps the act's unit IDs to peasant slots
+	 * @return A mask of the fields the act writes
+	 */
+	public abstract long writes(long state, PackedState encoding);
+	
+	/**
+	 * Regresses a partial state through the act: adds every partial state in
+	 * which the act is applicable and leads into after. Only acts that achieve
+	 * part of after are regressed. Acts without a regression add nothing.
+	 * 
+	 * @param after - The partial state the act must lead into
+	 * @param encoding - Maps the act's unit IDs to peasant slots
+	 * @param before - Receives the regressed partial states
+	 */
+	public void regress(PartialState after, PackedState encoding, List<PartialState> before) {
+	}
+	
+	/**
+	 * Adds the preconditions of the act on the peasants and their number, one
+	 * partial state per ground alternative. Stock the act needs is given by
+	 * required. Acts that add nothing are left out of relaxed planning.
+	 * 
+	 * @param encoding - Maps the act's unit IDs to peasant slots
+	 * @param pre - Receives the preconditions
+	 */
+	public void preconditions(PackedState encoding, List<PartialState> pre) {
+	}
+	
+	/**
+	 * 
+	 * @param resource - A resource held by the townhall
+	 * @return The amount the townhall must hold for the act to apply
+	 */
+	public int required(ResourceType resource) {
+		return 0;
+	}
+	
+	/**
+	 * 
+	 * @return The mask of the locations of the peasants in ids
+	 */
+	protected static long locations(PackedState encoding, int... ids) {
+		long mask = 0;
+		for(int id : ids) {
+			mask |= PackedState.locationMask(encoding.slotOf(id));
+		}
+		return mask;
+	}
+	
+	/**
+	 * 
+	 * @return The mask of the cargo of the peasants in ids
+	 */
+	protected static long cargoes(PackedState encoding, int... ids) {
+		long mask = 0;
+		for(int id : ids) {
+			mask |= PackedState.cargoMask(encoding.slotOf(id));
+		}
+		return mask;
+	}
+	
+	/**
+	 * 
+	 * @return The partial state with every peasant in ids at location holding cargo
+	 */
+	protected static PartialState group(PackedState encoding, int[] ids, int location, int cargo) {
+		long value = 0;
+		long mask = 0;
+		for(int id : ids) {
+			int slot = encoding.slotOf(id);
+			value = PackedState.withCargo(PackedState.withLocation(value, slot, location), slot, cargo);
+			mask |= PackedState.locationMask(slot) | PackedState.cargoMask(slot);
+		}
+		return new PartialState(value, mask);
+	}
 
 }
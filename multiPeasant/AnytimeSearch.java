@@ -0,0 +1,167 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Anytime repairing A* (ARA*). The first pass orders the open list by
+ * g + weight * h, which finds a plan quickly. Each later pass lowers the
+ * weight towards 1 and carries on from the previous pass: the best g found for
+ * every state is kept, and states improved after they were closed are queued
+ * again instead of searched from scratch.
+ *
+ * The best plan found so far is always kept. The search stops when the time
+ * budget runs out, whether or not there is a plan yet. Without one it fails,
+ * since a partial path does not reach the goal.
+ */
+public class AnytimeSearch {
+
+	private static final Logger logger = Logger.getLogger(AnytimeSearch.class.getCanonicalName());
+
+	private SearchProblem problem;
+	private TieBreak tieBreak;
+	private double weight;
+	private double weightStep;
+	private long budgetNanos;
+
+	private LookupPriorityQueue<Node> open;
+	private HashSet<Node> closed = new HashSet<Node>();
+	private HashMap<Node, Node> best = new HashMap<Node, Node>(); //cheapest node found per state
+	private HashMap<Node, Node> incons = new HashMap<Node, Node>(); //closed states found cheaper since
+	private ArrayList<Node> successors = new ArrayList<Node>();
+	private SearchStats stats = new SearchStats();
+	private Node incumbent;
+	private long deadline;
+
+	/**
+	 *
+	 * @param problem - The state space to search
+	 * @param tieBreak - Orders nodes of equal weighted f
+	 * @param weight - The heuristic weight of the first pass, at least 1
+	 * @param weightStep - How much the weight drops after each pass
+	 * @param budgetMillis - The planning time allowed
+	 */
+	public AnytimeSearch(SearchProblem problem, TieBreak tieBreak, double weight, double weightStep, long budgetMillis) {
+		if(weight < 1 || weightStep <= 0) {
+			throw new IllegalArgumentException("Need weight >= 1 and a positive weight step");
+		}
+		this.problem = problem;
+		this.tieBreak = tieBreak;
+		this.weight = weight;
+		this.weightStep = weightStep;
+		this.budgetNanos = budgetMillis * 1000000L;
+	}
+
+	/**
+	 *
+	 * @param root - The initial node
+	 * @return The best goal node found, or null if there is none within the budget
+	 */
+	public Node search(Node root) {
+		long start = System.nanoTime();
+		deadline = start + budgetNanos;
+		open = new LookupPriorityQueue<Node>(new WeightedOrder());
+		root.setOrder(stats.generated());
+		best.put(root, root);
+		open.add(root);
+
+		while(true) {
+			boolean finished = improvePath();
+			if(logger.isLoggable(Level.FINE)) {
+				logger.fine("ARA* weight " + weight + ": plan cost "
+						+ (incumbent == null ? "none" : Integer.toString(incumbent.getCostToNode()))
+						+ " after " + (System.nanoTime() - start) / 1000000 + " ms, " + stats);
+			}
+			if(!finished || weight == 1 || System.nanoTime() > deadline || (open.isEmpty() && incons.isEmpty())) {
+				return incumbent;
+			}
+			weight = Math.max(1, weight - weightStep);
+			reorder();
+		}
+	}
+
+	/**
+	 * Expands nodes until none left in open can beat the incumbent under the
+	 * current weight.
+	 *
+	 * @return False if the time budget ran out first
+	 */
+	private boolean improvePath() {
+		while(!open.isEmpty()) {
+			if(System.nanoTime() > deadline) {
+				return false;
+			}
+			Node node = open.peek();
+			if(incumbent != null && key(node) >= key(incumbent)) {
+				return true;
+			}
+			open.poll();
+
+			if(problem.isGoal(node)) {
+				if(incumbent == null || node.getCostToNode() < incumbent.getCostToNode()) {
+					incumbent = node;
+				}
+				continue;
+			}
+
+			closed.add(node);
+			stats.expanded();
+
+			successors.clear();
+			problem.expand(node, successors);
+			for(Node n : successors) {
+				if(n.getCostToGoal() >= GroundAct.INFINITE) {
+					continue; //a dead end
+				}
+				Node known = best.get(n);
+				if(known != null && known.getCostToNode() <= n.getCostToNode()) {
+					continue;
+				}
+				best.put(n, n);
+				n.setOrder(stats.generated());
+				if(closed.contains(n)) {
+					incons.put(n, n);
+				} else if(!open.add(n)) {
+					open.decreaseKey(n);
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Starts the next pass: queues the inconsistent states, rebuilds the open
+	 * list under the new weight and reopens every state.
+	 */
+	private void reorder() {
+		LookupPriorityQueue<Node> reordered = new LookupPriorityQueue<Node>(new WeightedOrder());
+		for(Node n : open) {
+			reordered.add(n);
+		}
+		for(Node n : incons.values()) {
+			if(!reordered.add(n)) {
+				reordered.decreaseKey(n);
+			}
+		}
+		open = reordered;
+		incons.clear();
+		closed.clear();
+	}
+
+	private double key(Node n) {
+		return n.getCostToNode() + weight * n.getCostToGoal();
+	}
+
+	private class WeightedOrder implements Comparator<Node> {
+		@Override
+		public int compare(Node a, Node b) {
+			int byKey = Double.compare(key(a), key(b));
+			if(byKey != 0) {
+				return byKey;
+			}
+			return tieBreak.compare(a, b);
+		}
+	}
+}
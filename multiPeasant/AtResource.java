@@ -2,14 +2,16 @@ import edu.cwru.sepia.environment.model.state.ResourceType;
 
 public class AtResource extends Literal {
 
-	private int objectID;
-	private ResourceType resource;
+	private final int objectID;
+	private final ResourceType resource;
 	
 	public AtResource(int objectID, ResourceType resource) {
+		super(Kind.AT_RESOURCE);
 		this.objectID = objectID;
 		this.resource = resource;
 	}
 	
+	@Override
 	public int getObjectID() {
 		return objectID;
 	}
@@ -20,7 +22,7 @@ public class AtResource extends Literal {
 	
 	@Override
 	public boolean equals(Object o) {
-		if(!o.getClass().toString().equals("class AtResource")) {
+		if(!(o instanceof Literal) || ((Literal)o).getKind() != Kind.AT_RESOURCE) {
 			return false;
 		}
 		AtResource a = (AtResource)o;
@@ -30,4 +32,8 @@ public class AtResource extends Literal {
 		return false;
 	}
 	
+	@Override
+	public int hashCode() {
+		return objectID * 31 + resource.ordinal();
+	}
 }
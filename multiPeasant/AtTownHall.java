@@ -1,18 +1,20 @@
 public class AtTownHall extends Literal {
 	
-	private int objectID;
+	private final int objectID;
 	
 	public AtTownHall(int objectID) {
+		super(Kind.AT_TOWNHALL);
 		this.objectID = objectID;
 	}
 	
+	@Override
 	public int getObjectID() {
 		return objectID;
 	}
 	
 	@Override
 	public boolean equals(Object o) {
-		if(!o.getClass().toString().equals("class AtTownHall")) {
+		if(!(o instanceof Literal) || ((Literal)o).getKind() != Kind.AT_TOWNHALL) {
 			return false;
 		}
 		AtTownHall a = (AtTownHall)o;
@@ -21,4 +23,9 @@ public class AtTownHall extends Literal {
 		}
 		return false;
 	}
+	
+	@Override
+	public int hashCode() {
+		return objectID;
+	}
 }
@@ -0,0 +1,82 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Expands a batch of nodes popped together. Successor generation and the
+ * heuristic of each successor run on a ForkJoinPool, one task per node, and
+ * the successor lists come back in the order of the batch, so merging them
+ * into the open list gives the same result on every run.
+ *
+ * With a single thread the batch is expanded in the caller's thread.
+ */
+public class BatchExpander {
+
+	private SearchProblem problem;
+	private ForkJoinPool pool;
+
+	/**
+	 *
+	 * @param problem - The state space to expand
+	 * @param threads - The parallelism of the pool
+	 */
+	public BatchExpander(SearchProblem problem, int threads) {
+		this.problem = problem;
+		if(threads > 1) {
+			pool = new ForkJoinPool(threads);
+		}
+	}
+
+	/**
+	 *
+	 * @param batch - The nodes to expand
+	 * @return The successors of each node, in the order of the batch
+	 */
+	public List<List<Node>> expand(List<Node> batch) {
+		List<List<Node>> successors = new ArrayList<List<Node>>(batch.size());
+		for(int i = 0; i < batch.size(); i++) {
+			successors.add(new ArrayList<Node>());
+		}
+		if(pool == null || batch.size() == 1) {
+			for(int i = 0; i < batch.size(); i++) {
+				problem.expand(batch.get(i), successors.get(i));
+			}
+		} else {
+			pool.invoke(new ExpandRange(batch, successors, 0, batch.size()));
+		}
+		return successors;
+	}
+
+	public void shutdown() {
+		if(pool != null) {
+			pool.shutdown();
+		}
+	}
+
+	private class ExpandRange extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private List<Node> batch;
+		private List<List<Node>> successors;
+		private int from;
+		private int to;
+
+		private ExpandRange(List<Node> batch, List<List<Node>> successors, int from, int to) {
+			this.batch = batch;
+			this.successors = successors;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if(to - from == 1) {
+				problem.expand(batch.get(from), successors.get(from));
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new ExpandRange(batch, successors, from, mid), new ExpandRange(batch, successors, mid, to));
+		}
+	}
+}
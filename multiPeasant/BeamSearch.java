@@ -0,0 +1,96 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Breadth-first beam search. Each layer is the successors of the one before,
+ * less the states an earlier layer held, cut to the width best by f and the
+ * tie-breaking policy. Time and memory grow linearly with the depth of the
+ * plan, but states cut from the beam are gone for good, so the search may find
+ * a longer plan than A* or none at all.
+ *
+ * Reports the width, the depth reached and whether a plan was found.
+ */
+public class BeamSearch {
+
+	private static final Logger logger = Logger.getLogger(BeamSearch.class.getCanonicalName());
+
+	private SearchProblem problem;
+	private TieBreak tieBreak;
+	private int width;
+	private int maxDepth;
+
+	private SearchStats stats = new SearchStats();
+
+	/**
+	 *
+	 * @param problem - The state space to search
+	 * @param tieBreak - The order nodes are ranked in
+	 * @param width - The most nodes kept per layer
+	 * @param maxDepth - The most layers searched
+	 */
+	public BeamSearch(SearchProblem problem, TieBreak tieBreak, int width, int maxDepth) {
+		this.problem = problem;
+		this.tieBreak = tieBreak;
+		this.width = Math.max(1, width);
+		this.maxDepth = maxDepth;
+	}
+
+	/**
+	 *
+	 * @param root - The initial node
+	 * @return The cheapest goal node of the first layer that has one, or null if the beam runs out
+	 */
+	public Node search(Node root) {
+		List<Node> beam = new ArrayList<Node>();
+		HashSet<Node> seen = new HashSet<Node>(); //states of earlier layers
+		ArrayList<Node> successors = new ArrayList<Node>();
+		beam.add(root);
+		seen.add(root);
+		root.setOrder(stats.generated());
+
+		Node goal = problem.isGoal(root) ? root : null;
+		int depth = 0;
+		while(goal == null && !beam.isEmpty() && depth < maxDepth) {
+			depth++;
+			HashMap<Node, Node> layer = new HashMap<Node, Node>();
+			for(Node node : beam) {
+				successors.clear();
+				problem.expand(node, successors);
+				stats.expanded();
+				for(Node n : successors) {
+					if(seen.contains(n) || n.getCostToGoal() >= GroundAct.INFINITE) {
+						continue; //seen, or a dead end
+					}
+					n.setOrder(stats.generated());
+					Node other = layer.get(n);
+					if(other == null || other.getCostToNode() > n.getCostToNode()) {
+						layer.put(n, n);
+					}
+				}
+			}
+
+			beam = new ArrayList<Node>(layer.values());
+			for(Node n : beam) { //before the cut, so that no goal is lost
+				if(problem.isGoal(n) && (goal == null || n.getCostToNode() < goal.getCostToNode())) {
+					goal = n;
+				}
+			}
+			Collections.sort(beam, tieBreak);
+			if(beam.size() > width) {
+				beam = new ArrayList<Node>(beam.subList(0, width));
+			}
+			seen.addAll(beam);
+		}
+
+		if(logger.isLoggable(Level.FINE)) {
+			logger.fine("Beam search (width " + width + ", " + tieBreak + ") " + (goal == null ? "found no plan" : "found a plan of "
+					+ goal.getCostToNode() + " acts") + " at depth " + depth + ": " + stats);
+		}
+		return goal;
+	}
+}
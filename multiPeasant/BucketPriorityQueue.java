@@ -0,0 +1,178 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * Open list for integer costs. Nodes are kept in one bucket per f value and,
+ * within it, one bucket per g value, so push and pop are O(1) amortized instead
+ * of the O(log n) of a heap. The tie-breaking policy decides whether equal f
+ * goes to the higher g, which is the lower h, and whether remaining ties pop
+ * first or last in.
+ *
+ * A node replaced by decreaseKey is left in its old bucket and skipped when it
+ * is reached. The f values queued at once may span at most MAX_BUCKETS, so a
+ * node with an infinite h is rejected rather than grown into.
+ */
+public class BucketPriorityQueue implements OpenList<Node> {
+
+	private static final int INITIAL_BUCKETS = 64;
+	private static final int MAX_BUCKETS = 1 << 20; //f values one queue may span
+
+	private Bucket[] buckets = new Bucket[INITIAL_BUCKETS];
+	private int base; //f value of buckets[0]
+	private int cursor; //no non-empty bucket is below this index
+	private boolean empty = true;
+	private HashMap<Node, Node> queued = new HashMap<Node, Node>();
+	private TieBreak tieBreak;
+
+	/**
+	 *
+	 * @param tieBreak - How nodes of equal f are ordered
+	 */
+	public BucketPriorityQueue(TieBreak tieBreak) {
+		this.tieBreak = tieBreak;
+	}
+
+	private static class Bucket {
+		private ArrayList<ArrayDeque<Node>> byCost = new ArrayList<ArrayDeque<Node>>();
+		private int top = -1; //no non-empty g bucket is above this
+		private int count;
+
+		private void push(Node n, int g) {
+			while(byCost.size() <= g) {
+				byCost.add(null);
+			}
+			ArrayDeque<Node> deque = byCost.get(g);
+			if(deque == null) {
+				deque = new ArrayDeque<Node>();
+				byCost.set(g, deque);
+			}
+			deque.addLast(n);
+			if(g > top) {
+				top = g;
+			}
+			count++;
+		}
+
+		private Node pop(boolean lifo) {
+			while(top >= 0) {
+				ArrayDeque<Node> deque = byCost.get(top);
+				if(deque != null && !deque.isEmpty()) {
+					count--;
+					return lifo ? deque.pollLast() : deque.pollFirst();
+				}
+				top--;
+			}
+			return null;
+		}
+	}
+
+	@Override
+	public boolean add(Node n) {
+		if(queued.containsKey(n)) {
+			return false;
+		}
+		queued.put(n, n);
+		push(n);
+		return true;
+	}
+
+	@Override
+	public Node poll() {
+		while(!queued.isEmpty()) {
+			while(buckets[cursor] == null || buckets[cursor].count == 0) {
+				cursor++;
+			}
+			Node n = buckets[cursor].pop(tieBreak.getOrder() == TieBreak.Order.LIFO);
+			if(queued.get(n) == n) { //skip nodes replaced by decreaseKey
+				queued.remove(n);
+				return n;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public Node get(Node n) {
+		return queued.get(n);
+	}
+
+	@Override
+	public boolean contains(Node n) {
+		return queued.containsKey(n);
+	}
+
+	@Override
+	public boolean decreaseKey(Node n) {
+		if(!queued.containsKey(n)) {
+			return false;
+		}
+		queued.put(n, n);
+		push(n);
+		return true;
+	}
+
+	@Override
+	public Iterator<Node> iterator() {
+		return queued.values().iterator();
+	}
+
+	@Override
+	public int size() {
+		return queued.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return queued.isEmpty();
+	}
+
+	@Override
+	public void clear() {
+		buckets = new Bucket[INITIAL_BUCKETS];
+		queued.clear();
+		empty = true;
+	}
+
+	private void push(Node n) {
+		int f = n.getCostToNode() + n.getCostToGoal();
+		if(empty) {
+			base = f - INITIAL_BUCKETS / 2;
+			cursor = f - base;
+			empty = false;
+		}
+		int i = f - base;
+		if(Math.max(i + 1, buckets.length) - Math.min(i, 0) > MAX_BUCKETS) {
+			throw new IllegalArgumentException("f = " + n.getCostToNode() + " + " + n.getCostToGoal() + " is more than "
+					+ MAX_BUCKETS + " buckets from the queued f values, dead ends must not be queued");
+		}
+		if(i < 0) {
+			grow(-i, 0);
+			i = 0;
+		} else if(i >= buckets.length) {
+			grow(0, i - buckets.length + 1);
+		}
+		if(buckets[i] == null) {
+			buckets[i] = new Bucket();
+		}
+		buckets[i].push(n, tieBreak.prefersLowH() ? n.getCostToNode() : 0);
+		if(i < cursor) { //heuristic is not consistent
+			cursor = i;
+		}
+	}
+
+	/**
+	 * Makes room for at least below more buckets under base and above more
+	 * buckets past the end, at least doubling the array up to MAX_BUCKETS.
+	 */
+	private void grow(int below, int above) {
+		int extra = Math.min(Math.max(buckets.length, below + above), MAX_BUCKETS - buckets.length);
+		int front = below > 0 ? Math.max(below, extra - above) : 0;
+		Bucket[] grown = new Bucket[buckets.length + extra];
+		System.arraycopy(buckets, 0, grown, front, buckets.length);
+		buckets = grown;
+		base -= front;
+		cursor += front;
+	}
+}
@@ -1,6 +1,51 @@
+import java.util.List;
+
+import edu.cwru.sepia.environment.model.state.ResourceType;
 
 public class BuildPeasant extends Act {
 	
-	public BuildPeasant() {}
+	private int cost;
+	
+	/**
+	 * 
+	 * @param cost - The gold the townhall spends on the peasant
+	 */
+	public BuildPeasant(int cost) {
+		super(Kind.BUILD_PEASANT);
+		this.cost = cost;
+	}
+	
+	public int getCost() {
+		return cost;
+	}
+	
+	@Override
+	public long apply(long state, PackedState encoding) {
+		int peasants = PackedState.peasants(state);
+		state = PackedState.withGold(state, PackedState.gold(state) - cost);
+		state = PackedState.withPeasants(state, peasants + 1);
+		return PackedState.withLocation(state, peasants, PackedState.TOWNHALL); //new peasant takes the next slot
+	}
+	
+	@Override
+	public long writes(long state, PackedState encoding) {
+		return PackedState.GOLD_MASK | PackedState.PEASANT_MASK | PackedState.locationMask(PackedState.peasants(state));
+	}
+	
+	/**
+	 * The townhall can build while it has a free peasant slot, so there is one
+	 * alternative per peasant count.
+	 */
+	@Override
+	public void preconditions(PackedState encoding, List<PartialState> pre) {
+		for(int peasants = 1; peasants < encoding.getSlotCount(); peasants++) {
+			pre.add(new PartialState(PackedState.withPeasants(0, peasants), PackedState.PEASANT_MASK));
+		}
+	}
+	
+	@Override
+	public int required(ResourceType resource) {
+		return resource.equals(ResourceType.GOLD) ? cost : 0;
+	}
 
 }
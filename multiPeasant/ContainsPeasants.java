@@ -1,22 +1,25 @@
 public class ContainsPeasants extends Literal {
 
-	private int numPeasants;
+	private final int numPeasants;
 	
 	public ContainsPeasants(int numPeasants) {
+		super(Kind.CONTAINS_PEASANTS);
 		this.numPeasants = numPeasants;
 	}
 	
+	@Override
+	public int getObjectID() {
+		return NO_OBJECT;
+	}
+	
 	public int getNumPeasants() {
 		return numPeasants;
 	}
 	
-	public void setNumPeasants(int numPeasants) {
-		this.numPeasants = numPeasants;
-	}
 
 	@Override
 	public boolean equals(Object o) {
-		if(!o.getClass().toString().equals("class ContainsPeasants")) {
+		if(!(o instanceof Literal) || ((Literal)o).getKind() != Kind.CONTAINS_PEASANTS) {
 			return false;
 		}
 		ContainsPeasants cp = (ContainsPeasants)o;
@@ -24,5 +27,10 @@ public class ContainsPeasants extends Literal {
 			return true;
 		}
 		return false;
-	}	
+	}
+	
+	@Override
+	public int hashCode() {
+		return numPeasants;
+	}
 }
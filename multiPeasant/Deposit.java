@@ -1,3 +1,5 @@
+import java.util.List;
+
 import edu.cwru.sepia.environment.model.state.ResourceType;
 
 public class Deposit extends Act {
@@ -7,6 +9,7 @@ public class Deposit extends Act {
 	private int amount;
 	
 	public Deposit(int depositID, ResourceType resource, int amount) {
+		super(Kind.DEPOSIT);
 		this.depositID = depositID;
 		this.resource = resource;
 		this.amount = amount;
@@ -38,4 +41,39 @@ public class Deposit extends Act {
 		}
 		return str;
 	}
+	
+	@Override
+	public long apply(long state, PackedState encoding) {
+		state = PackedState.withCargo(state, encoding.slotOf(depositID), PackedState.EMPTY);
+		return PackedState.deposit(state, resource, amount);
+	}
+	
+	@Override
+	public long writes(long state, PackedState encoding) {
+		return cargoes(encoding, depositID) | PackedState.amountMask(resource);
+	}
+	
+	@Override
+	public void regress(PartialState after, PackedState encoding, List<PartialState> before) {
+		int slot = encoding.slotOf(depositID);
+		long stock = PackedState.amountMask(resource);
+		long cargo = PackedState.cargoMask(slot);
+		if(!after.constrains(stock) || PackedState.amount(after.getValue(), resource) < amount
+				|| after.conflicts(cargo, PackedState.withCargo(0, slot, PackedState.EMPTY))) {
+			return;
+		}
+		int held = PackedState.amount(after.getValue(), resource) - amount;
+		PartialState pre = after.release(stock).release(cargo)
+				.require(stock, PackedState.withAmount(0, resource, held))
+				.require(cargo, PackedState.withCargo(0, slot, PackedState.cargoOf(resource)));
+		pre = pre.require(PackedState.locationMask(slot), PackedState.withLocation(0, slot, PackedState.TOWNHALL));
+		if(pre != null) {
+			before.add(pre);
+		}
+	}
+	
+	@Override
+	public void preconditions(PackedState encoding, List<PartialState> pre) {
+		pre.add(group(encoding, new int[] {depositID}, PackedState.TOWNHALL, PackedState.cargoOf(resource)));
+	}
 }
@@ -1,3 +1,5 @@
+import java.util.List;
+
 import edu.cwru.sepia.environment.model.state.ResourceType;
 
 public class Deposit2 extends Act {
@@ -8,6 +10,7 @@ public class Deposit2 extends Act {
 	private int amount;
 	
 	public Deposit2(int depositID1, int depositID2, ResourceType resource, int amount) {
+		super(Kind.DEPOSIT2);
 		this.depositID1 = depositID1;
 		this.depositID2 = depositID2;
 		this.resource = resource;
@@ -46,4 +49,21 @@ public class Deposit2 extends Act {
 		}
 		return str;
 	}
-}
\ No newline at end of file
+	
+	@Override
+	public long apply(long state, PackedState encoding) {
+		state = PackedState.withCargo(state, encoding.slotOf(depositID1), PackedState.EMPTY);
+		state = PackedState.withCargo(state, encoding.slotOf(depositID2), PackedState.EMPTY);
+		return PackedState.deposit(state, resource, amount);
+	}
+	
+	@Override
+	public long writes(long state, PackedState encoding) {
+		return cargoes(encoding, depositID1, depositID2) | PackedState.amountMask(resource);
+	}
+	
+	@Override
+	public void preconditions(PackedState encoding, List<PartialState> pre) {
+		pre.add(group(encoding, new int[] {depositID1, depositID2}, PackedState.TOWNHALL, PackedState.cargoOf(resource)));
+	}
+}
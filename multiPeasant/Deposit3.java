@@ -1,3 +1,5 @@
+import java.util.List;
+
 import edu.cwru.sepia.environment.model.state.ResourceType;
 
 public class Deposit3 extends Act {
@@ -9,6 +11,7 @@ public class Deposit3 extends Act {
 	private int amount;
 	
 	public Deposit3(int depositID1, int depositID2, int depositID3, ResourceType resource, int amount) {
+		super(Kind.DEPOSIT3);
 		this.depositID1 = depositID1;
 		this.depositID2 = depositID2;
 		this.depositID3 = depositID3;
@@ -50,4 +53,22 @@ public class Deposit3 extends Act {
 		}
 		return str;
 	}
-}
\ No newline at end of file
+	
+	@Override
+	public long apply(long state, PackedState encoding) {
+		state = PackedState.withCargo(state, encoding.slotOf(depositID1), PackedState.EMPTY);
+		state = PackedState.withCargo(state, encoding.slotOf(depositID2), PackedState.EMPTY);
+		state = PackedState.withCargo(state, encoding.slotOf(depositID3), PackedState.EMPTY);
+		return PackedState.deposit(state, resource, amount);
+	}
+	
+	@Override
+	public long writes(long state, PackedState encoding) {
+		return cargoes(encoding, depositID1, depositID2, depositID3) | PackedState.amountMask(resource);
+	}
+	
+	@Override
+	public void preconditions(PackedState encoding, List<PartialState> pre) {
+		pre.add(group(encoding, new int[] {depositID1, depositID2, depositID3}, PackedState.TOWNHALL, PackedState.cargoOf(resource)));
+	}
+}
@@ -0,0 +1,139 @@
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Prunes states that a closed state dominates. Closed states are grouped by
+ * everything except the townhall's stock: peasant count, locations and cargo.
+ *
+ * Goal amounts are exact, so more stock is not better in general. A surplus
+ * is only useful if the rest of the plan can fetch it in fewer trips. That
+ * holds once the group has its final size: the planners then only offer acts
+ * of the whole group, so every later trip fetches one group load. A state t
+ * dominates s when:
+ * - they match outside the stock,
+ * - t has its final number of peasants,
+ * - t is no further from the root,
+ * - t has at least as much of each resource, but not more than the target,
+ * - the difference is a whole number of group trips.
+ * A plan of s goes from the townhall with empty hands back to it once per
+ * deposit. Following it from t and dropping the last of those round trips,
+ * one per group load of surplus, gives a plan of t that is no longer. If the
+ * group is not at the townhall with empty hands, its first deposit ends a
+ * trip that cannot be dropped, so t must then be a trip short of the target.
+ *
+ * Each group keeps, per gold and wood amount in trips, the smallest g
+ * recorded with at least that much wood, so a test reads one entry per gold
+ * amount at or above the state's.
+ */
+public class DominanceIndex {
+
+	private static final int NONE = Integer.MAX_VALUE;
+
+	private int finalPeasants;
+	private int step; //what one trip of the final group fetches
+	private int targetGold;
+	private int targetWood;
+	private HashMap<Long, int[][]> groups = new HashMap<Long, int[][]>();
+	private long pruned;
+
+	/**
+	 *
+	 * @param encoding - The state encoding of the problem
+	 * @param finalPeasants - The number of peasants after which no more are built
+	 * @param targetGold - The gold the goal asks for
+	 * @param targetWood - The wood the goal asks for
+	 */
+	public DominanceIndex(PackedState encoding, int finalPeasants, int targetGold, int targetWood) {
+		this.finalPeasants = finalPeasants;
+		this.step = Math.max(1, finalPeasants * encoding.getCargoAmount());
+		this.targetGold = targetGold;
+		this.targetWood = targetWood;
+	}
+
+	/**
+	 * Records a closed node.
+	 */
+	public void add(Node n) {
+		long state = n.getState();
+		if(PackedState.peasants(state) != finalPeasants) {
+			return; //cannot dominate anything
+		}
+		int gold = PackedState.gold(state);
+		int wood = PackedState.wood(state);
+		int slack = ready(state) ? 0 : step;
+		if(gold + slack > targetGold || wood + slack > targetWood) {
+			return;
+		}
+		long key = key(state);
+		int[][] group = groups.get(key);
+		if(group == null) {
+			group = new int[targetGold / step + 1][];
+			groups.put(key, group);
+		}
+		int[] row = group[gold / step];
+		if(row == null) {
+			row = new int[targetWood / step + 1];
+			Arrays.fill(row, NONE);
+			group[gold / step] = row;
+		}
+		int g = n.getCostToNode();
+		for(int w = wood / step; w >= 0 && row[w] > g; w--) {
+			row[w] = g; //every smaller wood amount is covered as well
+		}
+	}
+
+	/**
+	 *
+	 * @return True if a recorded node dominates n
+	 */
+	public boolean dominated(Node n) {
+		long state = n.getState();
+		if(PackedState.peasants(state) != finalPeasants) {
+			return false;
+		}
+		int gold = PackedState.gold(state);
+		int wood = PackedState.wood(state);
+		if(gold > targetGold || wood > targetWood) {
+			return false;
+		}
+		int[][] group = groups.get(key(state));
+		if(group == null) {
+			return false;
+		}
+		int g = n.getCostToNode();
+		for(int row = gold / step; row < group.length; row++) {
+			if(group[row] != null && group[row][wood / step] <= g) {
+				pruned++;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public long getPruned() {
+		return pruned;
+	}
+
+	/**
+	 *
+	 * @return True if every peasant is at the townhall with empty hands
+	 */
+	private boolean ready(long state) {
+		for(int slot = 0; slot < PackedState.peasants(state); slot++) {
+			if(PackedState.location(state, slot) != PackedState.TOWNHALL
+					|| PackedState.cargo(state, slot) != PackedState.EMPTY) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The state with its stock cut to the part below one trip, so that states
+	 * a whole number of trips apart share a group.
+	 */
+	private long key(long state) {
+		state = PackedState.withGold(state, PackedState.gold(state) % step);
+		return PackedState.withWood(state, PackedState.wood(state) % step);
+	}
+}
@@ -0,0 +1,96 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Enforced hill-climbing as in FF. From the current node a breadth-first
+ * search looks for the nearest node with a lower h, which becomes the current
+ * node. Plateaus and local minima are left the same way, by searching wider
+ * instead of backtracking. With helpful pruning on, only the successors the
+ * problem calls helpful are followed.
+ *
+ * The search is incomplete. A breadth-first search that runs out of nodes is
+ * a dead end, and search() returns null so that the planner can fall back to
+ * a complete search.
+ *
+ * Reports the improvements, and the longest escape from a plateau in acts.
+ */
+public class EnforcedHillClimbing {
+
+	private static final Logger logger = Logger.getLogger(EnforcedHillClimbing.class.getCanonicalName());
+
+	private SearchProblem problem;
+	private boolean pruneUnhelpful;
+
+	private SearchStats stats = new SearchStats();
+	private int improvements;
+	private int longestEscape;
+
+	/**
+	 *
+	 * @param problem - The state space to search
+	 * @param pruneUnhelpful - Whether to follow only the helpful successors
+	 */
+	public EnforcedHillClimbing(SearchProblem problem, boolean pruneUnhelpful) {
+		this.problem = problem;
+		this.pruneUnhelpful = pruneUnhelpful;
+	}
+
+	/**
+	 *
+	 * @param root - The initial node
+	 * @return The first goal node reached, or null at a dead end
+	 */
+	public Node search(Node root) {
+		Node current = root;
+		while(!problem.isGoal(current)) {
+			current = improve(current);
+			if(current == null) {
+				break;
+			}
+			improvements++;
+		}
+		if(logger.isLoggable(Level.FINE)) {
+			logger.fine("Enforced hill-climbing" + (pruneUnhelpful ? " (helpful only)" : "")
+					+ (current == null ? " hit a dead end" : " reached the goal") + ": " + stats
+					+ ", improvements " + improvements + ", longest escape " + longestEscape + " acts");
+		}
+		return current;
+	}
+
+	/**
+	 * Breadth-first search from start for a goal or a lower h.
+	 *
+	 * @return The node found, or null if there is none
+	 */
+	private Node improve(Node start) {
+		ArrayDeque<Node> queue = new ArrayDeque<Node>();
+		HashSet<Node> seen = new HashSet<Node>();
+		ArrayList<Node> successors = new ArrayList<Node>();
+		queue.add(start);
+		seen.add(start);
+
+		while(!queue.isEmpty()) {
+			Node node = queue.poll();
+			successors.clear();
+			problem.expand(node, successors);
+			stats.expanded();
+			List<Node> children = pruneUnhelpful ? problem.helpful(node, successors) : successors;
+			for(Node n : children) {
+				stats.generated();
+				if(n.getCostToGoal() >= GroundAct.INFINITE || !seen.add(n)) {
+					continue; //a dead end, or seen
+				}
+				if(n.getCostToGoal() < start.getCostToGoal() || problem.isGoal(n)) {
+					longestEscape = Math.max(longestEscape, n.getCostToNode() - start.getCostToNode());
+					return n;
+				}
+				queue.add(n);
+			}
+		}
+		return null;
+	}
+}
@@ -27,10 +27,13 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -46,7 +49,7 @@ import edu.cwru.sepia.environment.model.state.ResourceType;
 import edu.cwru.sepia.environment.model.state.State.StateView;
 import edu.cwru.sepia.environment.model.state.Unit.UnitView;
 
-public class ForwardPlanner extends Agent {
+public class ForwardPlanner extends Agent implements SearchProblem {
 	private static final long serialVersionUID = -4047208702628325380L;
 	private static final Logger logger = Logger.getLogger(ForwardPlanner.class.getCanonicalName());
 	public static final int GATHER_AMOUNT = 100;
@@ -60,14 +63,33 @@ public class ForwardPlanner extends Agent {
 	private List<Integer> peasantIds = new ArrayList<Integer>();
 	private List<Integer> townhallIds = new ArrayList<Integer>();
 	
-	private LookupPriorityQueue<Node> open = new LookupPriorityQueue<Node>();
-	private List<Node> closed = new ArrayList<Node>();
+	private OpenList<Node> open;
+	private Set<Node> closed = new HashSet<Node>();
+	private TieBreak tieBreak;
+	private SearchStats stats = new SearchStats();
+	private String searchMode;
+	private int threads;
+	private int batchSize;
+	private boolean forkJoin;
+	private boolean macros;
+	private boolean numeric;
+	private boolean pruneDominated;
+	private DominanceIndex dominance; //null unless pruning dominated states
+	private String heuristicMode;
+	private Heuristic estimator; //null for the built-in estimate
+	private Macro[] goldTrips; //round trips, by number of peasants
+	private Macro[] woodTrips;
+	private PlannerOptions options;
 	private LinkedList<Node> solution = new LinkedList<Node>();
 	
 	private ArrayList<Literal> initLits = new ArrayList<Literal>();
 	private ArrayList<Literal> goalLits = new ArrayList<Literal>();
 	
 	private StateView currentState;
+	private PackedState encoding;
+	private LiteralTable interned;
+	private long goalState;
+	private long goalMask;
 	
 	private int nextGoalID = 0;
 	private int targetGold;
@@ -86,6 +108,22 @@ public class ForwardPlanner extends Agent {
 		} else {
 			targetWood = 200;
 		}
+		options = new PlannerOptions(arguments, 2);
+		tieBreak = TieBreak.fromOptions(options);
+		searchMode = options.choice("search", "astar", "astar", "hda", "ara", "ida", "ehc", "beam", "regression", "bidirectional");
+		threads = options.getInt("threads", Runtime.getRuntime().availableProcessors());
+		forkJoin = options.choice("expand", "serial", "serial", "forkjoin").equals("forkjoin");
+		batchSize = Math.max(1, options.getInt("batch", forkJoin ? threads : 1));
+		//with its table full, IDA* cannot tell a macro from its steps taken one by one
+		macros = options.getBoolean("macros", true) && !searchMode.equals("ida");
+		numeric = options.getBoolean("numeric", true);
+		pruneDominated = options.getBoolean("dominance", false);
+		heuristicMode = options.choice("heuristic", "default", "default", "hadd", "hff", "hmax", "pdb", "landmark");
+		if(options.choice("queue", "heap", "heap", "bucket").equals("bucket")) {
+			open = new BucketPriorityQueue(tieBreak);
+		} else {
+			open = new LookupPriorityQueue<Node>(tieBreak);
+		}
 	}
 
 	@Override
@@ -110,835 +148,548 @@ public class ForwardPlanner extends Agent {
 			}
 		}
 		
+		int[] peasantSlots = new int[peasantIds.size()];
+		for(int i = 0; i < peasantSlots.length; i++) {
+			peasantSlots[i] = peasantIds.get(i);
+		}
+		encoding = new PackedState(townhallIds.get(0), peasantSlots, GATHER_AMOUNT);
+		interned = new LiteralTable(encoding);
+		
 		//initial state
-		initLits.add(new ContainsPeasants(1));
+		initLits.add(interned.containsPeasants(1));
 		initLits.add(new Has(townhallIds.get(0), ResourceType.GOLD, 0)); //town has no gold
 		initLits.add(new Has(townhallIds.get(0), ResourceType.WOOD, 0)); //town has no wood
-		initLits.add(new AtTownHall(peasantIds.get(0))); //peasant starts at the townhall
+		initLits.add(interned.atTownHall(peasantIds.get(0))); //peasant starts at the townhall
 
 		//goal state
 		goalLits.add(new Has(townhallIds.get(0), ResourceType.GOLD, targetGold));
 		goalLits.add(new Has(townhallIds.get(0), ResourceType.WOOD, targetWood));
 		
+		goalState = encoding.encode(goalLits);
+		goalMask = encoding.mask(goalLits);
+		if(pruneDominated) {
+			dominance = new DominanceIndex(encoding, encoding.getSlotCount(), targetGold, targetWood);
+		}
+		if(heuristicMode.equals("pdb")) {
+			estimator = PatternDatabase.load(encoding, RelaxedPlanHeuristic.groupActs(encoding, PEASANT_COST),
+					goalState, goalMask, new File(options.get("pdbdir", "pdb")), options.getLong("pdbmax", 50000000));
+		} else if(heuristicMode.equals("landmark")) {
+			estimator = new LandmarkHeuristic(encoding, RelaxedPlanHeuristic.groupActs(encoding, PEASANT_COST),
+					encoding.encode(initLits), goalState, goalMask);
+		} else if(!heuristicMode.equals("default")) {
+			estimator = new RelaxedPlanHeuristic(encoding, RelaxedPlanHeuristic.groupActs(encoding, PEASANT_COST),
+					goalState, goalMask, RelaxedPlanHeuristic.Mode.valueOf(heuristicMode.toUpperCase()));
+		}
+		
 		int estimatedCost = heuristic(targetGold, targetWood, false, false);
 		
-		Node root = new Node(null, null, initLits, 0, estimatedCost);
+		Node root = new Node(initLits, interned, estimatedCost);
+		if(estimator != null) {
+			root.setCostToGoal(estimator.estimate(root.getState()));
+		}
 		
-		open.add(root);
+		int[] group = new int[encoding.getSlotCount()];
+		for(int i = 0; i < group.length; i++) {
+			group[i] = encoding.getPeasantID(i);
+		}
+		goldTrips = new Macro[group.length + 1];
+		woodTrips = new Macro[group.length + 1];
+		for(int count = 1; count <= group.length; count++) {
+			goldTrips[count] = Macro.roundTrip(Arrays.copyOf(group, count), ResourceType.GOLD, GATHER_AMOUNT);
+			woodTrips[count] = Macro.roundTrip(Arrays.copyOf(group, count), ResourceType.WOOD, GATHER_AMOUNT);
+		}
 		
-		while(true) {
-			Node node = open.poll();
-			
-			if(node == null) {
-				terminalStep(newState, stateHistory);
-				break;
+		Node goal = null;
+		if(numeric) {
+			goal = new NumericPlanner(encoding, PEASANT_COST).plan(root, goalState, goalMask);
+			if(logger.isLoggable(Level.FINE)) {
+				logger.fine(goal == null ? "No numeric plan, searching" : "Numeric plan of " + goal.getCostToNode() + " acts");
 			}
-			
-			//Goal found
-			boolean goalPassed = true;
-			for(Literal goalLiteral : goalLits) { 				
-				if(!node.containsLit(goalLiteral)) {
-					goalPassed = false;
-					break;
+		}
+		if(goal == null && root.getCostToGoal() < GroundAct.INFINITE) { //no plan from a dead end
+			if(searchMode.equals("hda")) {
+				goal = new HashDistributedSearch(this, tieBreak, threads).search(root);
+			} else if(searchMode.equals("ara")) {
+				goal = new AnytimeSearch(this, tieBreak, options.getDouble("weight", 5),
+						options.getDouble("weightstep", 1), options.getLong("budget", 1000)).search(root);
+			} else if(searchMode.equals("regression") || searchMode.equals("bidirectional")) {
+				RegressionSearch regression = new RegressionSearch(encoding, peasantActs(peasantIds.get(0)), tieBreak);
+				PartialState target = new PartialState(goalState, goalMask);
+				if(searchMode.equals("regression")) {
+					goal = replay(root, regression.search(root.getState(), target));
+				} else {
+					goal = replay(root, regression.searchBidirectional(this, root, target));
 				}
-			}
-			if(goalPassed) {				
-				while(node.getParentNode() != null) {
-					solution.addFirst(node);
-					node = node.getParentNode();
+			} else if(searchMode.equals("ida")) {
+				goal = new IterativeDeepeningSearch(this, tieBreak, options.getInt("maxnodes", 1000000)).search(root);
+			} else if(searchMode.equals("beam")) {
+				goal = new BeamSearch(this, tieBreak, options.getInt("width", 100), options.getInt("maxdepth", 10000)).search(root);
+			} else if(searchMode.equals("ehc") && estimator != null) { //the built-in formula keeps falling past the goal
+				goal = new EnforcedHillClimbing(this, options.getBoolean("helpful", true)).search(root);
+				if(goal == null) { //dead end, fall back to complete search
+					goal = search(root);
 				}
-				printPlan();
-				break;
+			} else {
+				goal = search(root);
 			}
-			
-			closed.add(node);
-			
-			//determine resources still needed
-			boolean needGold = false;
-			boolean needWood = false;
-			int neededGold = 0; //according to the townhall
-			int neededWood = 0;
-			for(Literal literal : node.getStateLits()) {
-				if(literal.getClass().toString().equals("class Has")
-						&& ((Has)literal).getObjectID() == townhallIds.get(0)) {
-					if(((Has)literal).getResource().equals(ResourceType.GOLD)) {
-						neededGold = ((Has)literal).getAmount();
-						if(neededGold < targetGold) needGold = true;
-					} else if(((Has)literal).getResource().equals(ResourceType.WOOD)) {
-						neededWood = ((Has)literal).getAmount();
-						if(neededWood < targetWood) needWood = true;
-					}
-				}
+		}
+		
+		if(goal != null) {
+			goal = Macro.expandPlan(goal);
+		}
+		
+		if(goal == null) {
+			terminalStep(newState, stateHistory);
+		} else {
+			while(goal.getParentNode() != null) {
+				solution.addFirst(goal);
+				goal = goal.getParentNode();
 			}
-			
-			if(node.containsLit(new ContainsPeasants(1))) { //only one peasant		
-				//GotoResource
-				if(node.containsLit(new AtTownHall(peasantIds.get(0)))
-						&& !node.containsLit(new Has(peasantIds.get(0), ResourceType.GOLD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(peasantIds.get(0), ResourceType.WOOD, GATHER_AMOUNT))) { //preconditions
-					if(needGold) {
-						ArrayList<Literal> literalsGold = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							if(!lit.equals(new AtTownHall(peasantIds.get(0)))) { //remove list
-								literalsGold.add(lit);
-							}
-						}
-						literalsGold.add(new AtResource(peasantIds.get(0), ResourceType.GOLD)); //add list
-						
-						estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, false, false);
-						
-						Node n = new Node(node, new GotoResource(peasantIds.get(0), ResourceType.GOLD),
-								literalsGold, node.getCostToNode() + 1, estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
+			printPlan();
+		}
+		return middleStep(newState, stateHistory);
+	}
+	
+	/**
+	 * A* that pops up to batchSize nodes at a time and expands them together,
+	 * on a ForkJoinPool if forkJoin is set. Successors are queued in the order
+	 * their parents were popped.
+	 * 
+	 * @param root - The initial node
+	 * @return The first goal node popped, or null if there is none
+	 */
+	private Node search(Node root) {
+		BatchExpander expander = new BatchExpander(this, forkJoin ? threads : 1);
+		ArrayList<Node> batch = new ArrayList<Node>(batchSize);
+		root.setOrder(stats.generated());
+		open.add(root);
+		
+		try {
+			while(true) {
+				batch.clear();
+				while(batch.size() < batchSize) {
+					Node node = open.poll();
+					
+					if(node == null) {
+						break;
 					}
-					if(needWood) {
-						ArrayList<Literal> literalsWood = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							if(!lit.equals(new AtTownHall(peasantIds.get(0)))) { //remove list
-								literalsWood.add(lit);
-							}
-						}
-						literalsWood.add(new AtResource(peasantIds.get(0), ResourceType.WOOD)); //add list
-						
-						estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, false, false);
-						
-						Node n = new Node(node, new GotoResource(peasantIds.get(0), ResourceType.WOOD),
-								literalsWood, node.getCostToNode() + 1, estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
+					
+					//Goal found
+					if(isGoal(node)) {
+						stats.countPlateau(open, node);
+						if(logger.isLoggable(Level.FINE)) {
+							logger.fine("Search (" + tieBreak + ", batch " + batchSize + "): " + stats
+									+ (dominance == null ? "" : ", dominated " + dominance.getPruned())
+									+ (estimator == null ? "" : ", heuristic " + estimator));
+						}
+						return node;
+					}
+					
+					closed.add(node);
+					if(dominance != null) {
+						dominance.add(node);
 					}
+					stats.expanded();
+					batch.add(node);
 				}
 				
-				//GotoTownHall
-				if((node.containsLit(new AtResource(peasantIds.get(0), ResourceType.GOLD))
-						|| node.containsLit(new AtResource(peasantIds.get(0), ResourceType.WOOD)))
-						&& (node.containsLit(new Has(peasantIds.get(0), ResourceType.GOLD, GATHER_AMOUNT))
-								|| node.containsLit(new Has(peasantIds.get(0), ResourceType.WOOD, GATHER_AMOUNT)))) { //preconditions
-					ArrayList<Literal> literals = new ArrayList<Literal>();
-					for(Literal lit : node.getStateLits()) {
-						if(!lit.equals(new AtResource(peasantIds.get(0), ResourceType.GOLD))
-								&& !lit.equals(new AtResource(peasantIds.get(0), ResourceType.WOOD))) { //remove list
-							literals.add(lit);
-						}
+				if(batch.isEmpty()) {
+					return null;
+				}
+				
+				for(List<Node> successors : expander.expand(batch)) {
+					for(Node n : successors) {
+						addToOpen(n);
 					}
+				}
+			}
+		} finally {
+			expander.shutdown();
+		}
+	}
+	
+	/**
+	 * 
+	 * @param peasantID - The peasant
+	 * @return The single-peasant acts of the peasant, for regression
+	 */
+	private List<Act> peasantActs(int peasantID) {
+		List<Act> acts = new ArrayList<Act>();
+		for(ResourceType resource : new ResourceType[] {ResourceType.GOLD, ResourceType.WOOD}) {
+			acts.add(new GotoResource(peasantID, resource));
+			acts.add(new Gather(peasantID, resource, GATHER_AMOUNT));
+			acts.add(new Deposit(peasantID, resource, GATHER_AMOUNT));
+		}
+		acts.add(new GotoTownHall(peasantID));
+		return acts;
+	}
+	
+	/**
+	 * Rebuilds the node chain of a plan found without forward nodes.
+	 * 
+	 * @return The last node of the plan, or null if there is no plan
+	 */
+	private Node replay(Node root, List<Act> plan) {
+		if(plan == null) {
+			return null;
+		}
+		Node node = root;
+		for(Act act : plan) {
+			node = new Node(node, act, node.getCostToNode() + 1, 0);
+		}
+		return node;
+	}
+	
+	/**
+	 * Queues the successor of a round trip macro.
+	 */
+	private void addRoundTrip(Node node, Macro macro, List<Node> successors) {
+		Node n = new Node(node, macro, node.getCostToNode() + macro.length(), 0);
+		long state = n.getState();
+		n.setCostToGoal(heuristic(targetGold - PackedState.gold(state), targetWood - PackedState.wood(state), false, false));
+		successors.add(n);
+	}
+	
+	@Override
+	public List<Node> helpful(Node node, List<Node> successors) {
+		if(estimator == null) {
+			return successors;
+		}
+		int helpful = estimator.helpful(node.getState());
+		List<Node> chosen = new ArrayList<Node>();
+		for(Node n : successors) {
+			if((GroundAct.progress(n) & helpful) != 0) {
+				chosen.add(n);
+			}
+		}
+		return chosen;
+	}
+	
+	@Override
+	public boolean isGoal(Node node) {
+		return (node.getState() & goalMask) == goalState;
+	}
+	
+	@Override
+	public void expand(Node node, List<Node> successors) {
+		int estimatedCost;
+		
+		//determine resources still needed
+		long state = node.getState();
+		int neededGold = PackedState.gold(state); //according to the townhall
+		int neededWood = PackedState.wood(state);
+		boolean needGold = neededGold < targetGold;
+		boolean needWood = neededWood < targetWood;
+		
+		if(PackedState.peasants(state) == 1) { //only one peasant		
+			//GotoResource
+			if(node.containsLit(interned.atTownHall(peasantIds.get(0)))
+					&& !node.containsLit(interned.carrying(peasantIds.get(0), ResourceType.GOLD))
+					&& !node.containsLit(interned.carrying(peasantIds.get(0), ResourceType.WOOD))) { //preconditions
+				if(needGold) {
+					estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, false, false);
 					
-					literals.add(new AtTownHall(peasantIds.get(0)));
-					
-					estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, true, true);
+					Node n = new Node(node, new GotoResource(peasantIds.get(0), ResourceType.GOLD),
+							node.getCostToNode() + 1, estimatedCost);
 					
-					Node n = new Node(node, new GotoTownHall(peasantIds.get(0)),
-							literals, node.getCostToNode() + 1, estimatedCost);
+					successors.add(n);
 					
-					if(!closed.contains(n)) {
-						open.add(n);
-					} else if (open.contains(n)){
-						Node toCompare = open.get(n);
-						if(toCompare.getCostToNode() > n.getCostToNode()) {
-							toCompare.setCostToNode(n.getCostToNode());
-							toCompare.setParentNode(n.getParentNode());
-						}
+					if(macros) {
+						addRoundTrip(node, goldTrips[1], successors);
 					}
 				}
-				
-				//Deposit
-				if(node.containsLit(new AtTownHall(peasantIds.get(0)))) {
-					if(node.containsLit(new Has(peasantIds.get(0), ResourceType.GOLD, GATHER_AMOUNT))) { //preconditions
-						ArrayList<Literal> literalsGold = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							if(!lit.equals(new Has(peasantIds.get(0), ResourceType.GOLD, GATHER_AMOUNT))) { //remove list
-								if(lit.getClass().toString().equals("class Has")
-										&& ((Has)lit).getObjectID() == townhallIds.get(0)
-										&& ((Has)lit).getResource().equals(ResourceType.GOLD)) {
-									literalsGold.add(new Has(townhallIds.get(0), ResourceType.GOLD, ((Has)lit).getAmount() + GATHER_AMOUNT));
-								} else {
-									literalsGold.add(lit);
-								}
-							}
-						}
-						
-						estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, false, true);
-						
-						Node n = new Node(node, new Deposit(peasantIds.get(0), ResourceType.GOLD, GATHER_AMOUNT),
-								literalsGold, node.getCostToNode() + 1, estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
-					}
-					if(node.containsLit(new Has(peasantIds.get(0), ResourceType.WOOD, GATHER_AMOUNT))) { //preconditions
-						ArrayList<Literal> literalsWood = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							if(!lit.equals(new Has(peasantIds.get(0), ResourceType.WOOD, GATHER_AMOUNT))) { //remove list
-								if(lit.getClass().toString().equals("class Has")
-										&& ((Has)lit).getObjectID() == townhallIds.get(0)
-										&& ((Has)lit).getResource().equals(ResourceType.WOOD)) {
-									literalsWood.add(new Has(townhallIds.get(0), ResourceType.WOOD, ((Has)lit).getAmount() + GATHER_AMOUNT));
-								} else {
-									literalsWood.add(lit);
-								}
-							}
-						}
-						
-						estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, false, true);
-						
-						Node n = new Node(node, new Deposit(peasantIds.get(0), ResourceType.WOOD, GATHER_AMOUNT),
-								literalsWood, node.getCostToNode() + 1, estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
+				if(needWood) {
+					estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, false, false);
+					
+					Node n = new Node(node, new GotoResource(peasantIds.get(0), ResourceType.WOOD),
+							node.getCostToNode() + 1, estimatedCost);
+					
+					successors.add(n);
+					
+					if(macros) {
+						addRoundTrip(node, woodTrips[1], successors);
 					}
 				}
+			}
+			
+			//GotoTownHall
+			if((node.containsLit(interned.atResource(peasantIds.get(0), ResourceType.GOLD))
+					|| node.containsLit(interned.atResource(peasantIds.get(0), ResourceType.WOOD)))
+					&& (node.containsLit(interned.carrying(peasantIds.get(0), ResourceType.GOLD))
+							|| node.containsLit(interned.carrying(peasantIds.get(0), ResourceType.WOOD)))) { //preconditions
+				estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, true, true);
 				
-				//Gather
-				if(!node.containsLit(new Has(peasantIds.get(0), ResourceType.GOLD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(peasantIds.get(0), ResourceType.WOOD, GATHER_AMOUNT))) {
-					if(node.containsLit(new AtResource(peasantIds.get(0), ResourceType.GOLD))) { //preconditions
-						ArrayList<Literal> literalsGold = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							literalsGold.add(lit);
-						}
-						
-						literalsGold.add(new Has(peasantIds.get(0), ResourceType.GOLD, GATHER_AMOUNT)); //add list
-						
-						estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, true, false);
-						
-						Node n = new Node(node, new Gather(peasantIds.get(0), ResourceType.GOLD, GATHER_AMOUNT),
-								literalsGold, node.getCostToNode() + 1, estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
-					}
-					if(node.containsLit(new AtResource(peasantIds.get(0), ResourceType.WOOD))) { //preconditions
-						ArrayList<Literal> literalsWood = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							literalsWood.add(lit);
-						}
-						
-						literalsWood.add(new Has(peasantIds.get(0), ResourceType.WOOD, GATHER_AMOUNT)); //add list
-						
-						estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, true, false);
-						
-						Node n = new Node(node, new Gather(peasantIds.get(0), ResourceType.WOOD, GATHER_AMOUNT),
-								literalsWood, node.getCostToNode() + 1, estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
-					}
-				}
+				Node n = new Node(node, new GotoTownHall(peasantIds.get(0)),
+						node.getCostToNode() + 1, estimatedCost);
 				
-				//BuildPeasant
-				boolean enoughGold = false;
-				for(Literal lit : node.getStateLits()) {
-					if(lit.getClass().toString().equals("class Has")
-							&& ((Has)lit).getObjectID() == townhallIds.get(0)
-							&& ((Has)lit).getResource().equals(ResourceType.GOLD)) {
-						if(((Has)lit).getAmount() >= PEASANT_COST) {
-							enoughGold = true;
-							break;
-						}
-					}
+				successors.add(n);
+			}
+			
+			//Deposit
+			if(node.containsLit(interned.atTownHall(peasantIds.get(0)))) {
+				if(node.containsLit(interned.carrying(peasantIds.get(0), ResourceType.GOLD))) { //preconditions
+					estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, false, true);
+					
+					Node n = new Node(node, new Deposit(peasantIds.get(0), ResourceType.GOLD, GATHER_AMOUNT),
+							node.getCostToNode() + 1, estimatedCost);
+					
+					successors.add(n);
 				}
-				
-				if(enoughGold) { //preconditions
-					ArrayList<Literal> literalsBuild = new ArrayList<Literal>();
-					for(Literal lit : node.getStateLits()) {
-						if(!lit.equals(new ContainsPeasants(1))) { //remove list
-							if(lit.getClass().toString().equals("class Has")
-									&& ((Has)lit).getObjectID() == townhallIds.get(0)
-									&& ((Has)lit).getResource().equals(ResourceType.GOLD)) {
-								literalsBuild.add(new Has(townhallIds.get(0), ResourceType.GOLD, ((Has)lit).getAmount() - PEASANT_COST));
-							} else {
-								literalsBuild.add(lit);
-							}
-						} else {
-							((ContainsPeasants)lit).setNumPeasants(2); //add list
-						}
-					}
+				if(node.containsLit(interned.carrying(peasantIds.get(0), ResourceType.WOOD))) { //preconditions
+					estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, false, true);
 					
-					//TODO get the new peasantID!!!!
-//					literalsBuild.add(new AtTownHall(peasantIds.get(1)));
+					Node n = new Node(node, new Deposit(peasantIds.get(0), ResourceType.WOOD, GATHER_AMOUNT),
+							node.getCostToNode() + 1, estimatedCost);
 					
-					estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, false, false);//TODO fix heuristic function
+					successors.add(n);
+				}
+			}
+			
+			//Gather
+			if(!node.containsLit(interned.carrying(peasantIds.get(0), ResourceType.GOLD))
+					&& !node.containsLit(interned.carrying(peasantIds.get(0), ResourceType.WOOD))) {
+				if(node.containsLit(interned.atResource(peasantIds.get(0), ResourceType.GOLD))) { //preconditions
+					estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, true, false);
 					
-					Node n = new Node(node, new BuildPeasant(), literalsBuild, node.getCostToNode() + 1, estimatedCost);
+					Node n = new Node(node, new Gather(peasantIds.get(0), ResourceType.GOLD, GATHER_AMOUNT),
+							node.getCostToNode() + 1, estimatedCost);
 					
-					if(!closed.contains(n)) {
-						open.add(n);
-					} else if (open.contains(n)){
-						Node toCompare = open.get(n);
-						if(toCompare.getCostToNode() > n.getCostToNode()) {
-							toCompare.setCostToNode(n.getCostToNode());
-							toCompare.setParentNode(n.getParentNode());
-						}
-					}
+					successors.add(n);
 				}
-			} else if(node.containsLit(new ContainsPeasants(2))) { //two peasants
-				//TODO deal with peasant IDs
-				//GotoResource2
-				if(node.containsLit(new AtTownHall(peasantIds.get(0)))
-						&& node.containsLit(new AtTownHall(peasantIds.get(1)))
-						&& !node.containsLit(new Has(peasantIds.get(0), ResourceType.GOLD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(peasantIds.get(1), ResourceType.GOLD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(peasantIds.get(0), ResourceType.WOOD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(peasantIds.get(1), ResourceType.WOOD, GATHER_AMOUNT))) { //preconditions
-					if(needGold) {
-						ArrayList<Literal> literalsGold = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							if(!lit.equals(new AtTownHall(peasantIds.get(0)))
-									&& !lit.equals(new AtTownHall(peasantIds.get(1)))) { //remove list
-								literalsGold.add(lit);
-							}
-						}
-						literalsGold.add(new AtResource(peasantIds.get(0), ResourceType.GOLD)); //add list
-						literalsGold.add(new AtResource(peasantIds.get(1), ResourceType.GOLD));
-						
-						estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, false, false);
-						
-						Node n = new Node(node, new GotoResource2(peasantIds.get(0), peasantIds.get(1), ResourceType.GOLD),
-								literalsGold, node.getCostToNode() + 1, estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
-					}
-					if(needWood) {
-						ArrayList<Literal> literalsWood = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							if(!lit.equals(new AtTownHall(peasantIds.get(0)))
-									&& !lit.equals(new AtTownHall(peasantIds.get(1)))) { //remove list
-								literalsWood.add(lit);
-							}
-						}
-						literalsWood.add(new AtResource(peasantIds.get(0), ResourceType.WOOD)); //add list
-						literalsWood.add(new AtResource(peasantIds.get(1), ResourceType.WOOD));
-						
-						estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, false, false);
-						
-						Node n = new Node(node, new GotoResource2(peasantIds.get(0), peasantIds.get(1), ResourceType.WOOD),
-								literalsWood, node.getCostToNode() + 1, estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
-					}
+				if(node.containsLit(interned.atResource(peasantIds.get(0), ResourceType.WOOD))) { //preconditions
+					estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, true, false);
+					
+					Node n = new Node(node, new Gather(peasantIds.get(0), ResourceType.WOOD, GATHER_AMOUNT),
+							node.getCostToNode() + 1, estimatedCost);
+					
+					successors.add(n);
 				}
+			}
+			
+			//BuildPeasant
+			boolean enoughGold = neededGold >= PEASANT_COST;
+			
+			if(enoughGold) { //preconditions
+				estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, false, false);//TODO fix heuristic function
 				
-				//GotoTownHall2
-				if((node.containsLit(new AtResource(peasantIds.get(0), ResourceType.GOLD))
-							|| node.containsLit(new AtResource(peasantIds.get(0), ResourceType.WOOD)))
-						&& (node.containsLit(new Has(peasantIds.get(0), ResourceType.GOLD, GATHER_AMOUNT))
-							|| node.containsLit(new Has(peasantIds.get(0), ResourceType.WOOD, GATHER_AMOUNT)))
-						&& (node.containsLit(new AtResource(peasantIds.get(1), ResourceType.GOLD))
-							|| node.containsLit(new AtResource(peasantIds.get(1), ResourceType.WOOD)))
-						&& (node.containsLit(new Has(peasantIds.get(1), ResourceType.GOLD, GATHER_AMOUNT))
-							|| node.containsLit(new Has(peasantIds.get(1), ResourceType.WOOD, GATHER_AMOUNT)))) { //preconditions
-					ArrayList<Literal> literals = new ArrayList<Literal>();
-					for(Literal lit : node.getStateLits()) {
-						if(!lit.equals(new AtResource(peasantIds.get(0), ResourceType.GOLD))
-								&& !lit.equals(new AtResource(peasantIds.get(0), ResourceType.WOOD))
-								&& !lit.equals(new AtResource(peasantIds.get(1), ResourceType.GOLD))
-								&& !lit.equals(new AtResource(peasantIds.get(1), ResourceType.WOOD))) { //remove list
-							literals.add(lit);
-						}
-					}
+				Node n = new Node(node, new BuildPeasant(PEASANT_COST), node.getCostToNode() + 1, estimatedCost);
+				
+				successors.add(n);
+			}
+		} else if(PackedState.peasants(state) == 2) { //two peasants
+			//TODO deal with peasant IDs
+			//GotoResource2
+			if(node.containsLit(interned.atTownHall(peasantIds.get(0)))
+					&& node.containsLit(interned.atTownHall(peasantIds.get(1)))
+					&& !node.containsLit(interned.carrying(peasantIds.get(0), ResourceType.GOLD))
+					&& !node.containsLit(interned.carrying(peasantIds.get(1), ResourceType.GOLD))
+					&& !node.containsLit(interned.carrying(peasantIds.get(0), ResourceType.WOOD))
+					&& !node.containsLit(interned.carrying(peasantIds.get(1), ResourceType.WOOD))) { //preconditions
+				if(needGold) {
+					estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, false, false);
 					
-					literals.add(new AtTownHall(peasantIds.get(0))); //add list
-					literals.add(new AtTownHall(peasantIds.get(1)));
+					Node n = new Node(node, new GotoResource2(peasantIds.get(0), peasantIds.get(1), ResourceType.GOLD),
+							node.getCostToNode() + 1, estimatedCost);
 					
-					estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, true, true);
+					successors.add(n);
+				}
+				if(needWood) {
+					estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, false, false);
 					
-					Node n = new Node(node, new GotoTownHall2(peasantIds.get(0), peasantIds.get(1)),
-							literals, node.getCostToNode() + 1, estimatedCost);
+					Node n = new Node(node, new GotoResource2(peasantIds.get(0), peasantIds.get(1), ResourceType.WOOD),
+							node.getCostToNode() + 1, estimatedCost);
 					
-					if(!closed.contains(n)) {
-						open.add(n);
-					} else if (open.contains(n)){
-						Node toCompare = open.get(n);
-						if(toCompare.getCostToNode() > n.getCostToNode()) {
-							toCompare.setCostToNode(n.getCostToNode());
-							toCompare.setParentNode(n.getParentNode());
-						}
-					}
+					successors.add(n);
 				}
+			}
+			
+			//GotoTownHall2
+			if((node.containsLit(interned.atResource(peasantIds.get(0), ResourceType.GOLD))
+						|| node.containsLit(interned.atResource(peasantIds.get(0), ResourceType.WOOD)))
+					&& (node.containsLit(interned.carrying(peasantIds.get(0), ResourceType.GOLD))
+						|| node.containsLit(interned.carrying(peasantIds.get(0), ResourceType.WOOD)))
+					&& (node.containsLit(interned.atResource(peasantIds.get(1), ResourceType.GOLD))
+						|| node.containsLit(interned.atResource(peasantIds.get(1), ResourceType.WOOD)))
+					&& (node.containsLit(interned.carrying(peasantIds.get(1), ResourceType.GOLD))
+						|| node.containsLit(interned.carrying(peasantIds.get(1), ResourceType.WOOD)))) { //preconditions
+				estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, true, true);
 				
-				//Deposit2
-				if(node.containsLit(new AtTownHall(peasantIds.get(0)))
-						&& node.containsLit(new AtTownHall(peasantIds.get(1)))) {
-					if(node.containsLit(new Has(peasantIds.get(0), ResourceType.GOLD, GATHER_AMOUNT))
-							&& node.containsLit(new Has(peasantIds.get(1), ResourceType.GOLD, GATHER_AMOUNT))) { //preconditions
-						ArrayList<Literal> literalsGold = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							if(!lit.equals(new Has(peasantIds.get(0), ResourceType.GOLD, GATHER_AMOUNT))
-									&& !lit.equals(new Has(peasantIds.get(1), ResourceType.GOLD, GATHER_AMOUNT))) { //remove list
-								if(lit.getClass().toString().equals("class Has")
-										&& ((Has)lit).getObjectID() == townhallIds.get(0)
-										&& ((Has)lit).getResource().equals(ResourceType.GOLD)) {
-									literalsGold.add(new Has(townhallIds.get(0), ResourceType.GOLD, ((Has)lit).getAmount() + 2 * GATHER_AMOUNT));
-								} else {
-									literalsGold.add(lit);
-								}
-							}
-						}
-						
-						estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, false, true);
-						
-						Node n = new Node(node, new Deposit2(peasantIds.get(0), peasantIds.get(1), ResourceType.GOLD, 2 * GATHER_AMOUNT),
-								literalsGold, node.getCostToNode() + 1, estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
-					}
-					if(node.containsLit(new Has(peasantIds.get(0), ResourceType.WOOD, GATHER_AMOUNT))
-							&& node.containsLit(new Has(peasantIds.get(1), ResourceType.WOOD, GATHER_AMOUNT))) { //preconditions
-						ArrayList<Literal> literalsWood = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							if(!lit.equals(new Has(peasantIds.get(0), ResourceType.WOOD, GATHER_AMOUNT))
-									&& !lit.equals(new Has(peasantIds.get(1), ResourceType.WOOD, GATHER_AMOUNT))) { //remove list
-								if(lit.getClass().toString().equals("class Has")
-										&& ((Has)lit).getObjectID() == townhallIds.get(0)
-										&& ((Has)lit).getResource().equals(ResourceType.WOOD)) {
-									literalsWood.add(new Has(townhallIds.get(0), ResourceType.WOOD, ((Has)lit).getAmount() + 2 * GATHER_AMOUNT));
-								} else {
-									literalsWood.add(lit);
-								}
-							}
-						}
-						
-						estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, false, true);
-						
-						Node n = new Node(node, new Deposit2(peasantIds.get(0), peasantIds.get(1), ResourceType.WOOD, 2 * GATHER_AMOUNT),
-								literalsWood, node.getCostToNode() + 1, estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
-					}
-				}
+				Node n = new Node(node, new GotoTownHall2(peasantIds.get(0), peasantIds.get(1)),
+						node.getCostToNode() + 1, estimatedCost);
 				
-				//Gather2
-				if(!node.containsLit(new Has(peasantIds.get(0), ResourceType.GOLD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(peasantIds.get(1), ResourceType.GOLD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(peasantIds.get(0), ResourceType.WOOD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(peasantIds.get(1), ResourceType.WOOD, GATHER_AMOUNT))) {
-					if(node.containsLit(new AtResource(peasantIds.get(0), ResourceType.GOLD))
-							&& node.containsLit(new AtResource(peasantIds.get(1), ResourceType.GOLD))) { //preconditions
-						ArrayList<Literal> literalsGold = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							literalsGold.add(lit);
-						}
-						
-						literalsGold.add(new Has(peasantIds.get(0), ResourceType.GOLD, GATHER_AMOUNT)); //add list
-						literalsGold.add(new Has(peasantIds.get(1), ResourceType.GOLD, GATHER_AMOUNT));
-						
-						estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, true, false);
-						
-						Node n = new Node(node, new Gather2(peasantIds.get(0), peasantIds.get(1), ResourceType.GOLD, 2 * GATHER_AMOUNT),
-								literalsGold, node.getCostToNode() + 1, estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
-					}
-					if(node.containsLit(new AtResource(peasantIds.get(0), ResourceType.WOOD))
-							&& node.containsLit(new AtResource(peasantIds.get(1), ResourceType.WOOD))) { //preconditions
-						ArrayList<Literal> literalsWood = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							literalsWood.add(lit);
-						}
-						
-						literalsWood.add(new Has(peasantIds.get(0), ResourceType.WOOD, GATHER_AMOUNT)); //add list
-						literalsWood.add(new Has(peasantIds.get(1), ResourceType.WOOD, GATHER_AMOUNT));
-						
-						estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, true, false);
-						
-						Node n = new Node(node, new Gather2(peasantIds.get(0), peasantIds.get(1), ResourceType.WOOD, 2 * GATHER_AMOUNT),
-								literalsWood, node.getCostToNode() + 1, estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
-					}
-				}
-				
-				//BuildPeasant
-				boolean enoughGold = false;
-				for(Literal lit : node.getStateLits()) {
-					if(lit.getClass().toString().equals("class Has")
-							&& ((Has)lit).getObjectID() == townhallIds.get(0)
-							&& ((Has)lit).getResource().equals(ResourceType.GOLD)) {
-						if(((Has)lit).getAmount() >= PEASANT_COST) {
-							enoughGold = true;
-							break;
-						}
-					}
+				successors.add(n);
+			}
+			
+			//Deposit2
+			if(node.containsLit(interned.atTownHall(peasantIds.get(0)))
+					&& node.containsLit(interned.atTownHall(peasantIds.get(1)))) {
+				if(node.containsLit(interned.carrying(peasantIds.get(0), ResourceType.GOLD))
+						&& node.containsLit(interned.carrying(peasantIds.get(1), ResourceType.GOLD))) { //preconditions
+					estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, false, true);
+					
+					Node n = new Node(node, new Deposit2(peasantIds.get(0), peasantIds.get(1), ResourceType.GOLD, 2 * GATHER_AMOUNT),
+							node.getCostToNode() + 1, estimatedCost);
+					
+					successors.add(n);
 				}
-				
-				if(enoughGold) { //preconditions
-					ArrayList<Literal> literalsBuild = new ArrayList<Literal>();
-					for(Literal lit : node.getStateLits()) {
-						if(!lit.equals(new ContainsPeasants(2))) { //remove list
-							if(lit.getClass().toString().equals("class Has")
-									&& ((Has)lit).getObjectID() == townhallIds.get(0)
-									&& ((Has)lit).getResource().equals(ResourceType.GOLD)) {
-								literalsBuild.add(new Has(townhallIds.get(0), ResourceType.GOLD, ((Has)lit).getAmount() - PEASANT_COST));
-							} else {
-								literalsBuild.add(lit);
-							}
-						} else {
-							((ContainsPeasants)lit).setNumPeasants(3); //add list
-						}
-					}
+				if(node.containsLit(interned.carrying(peasantIds.get(0), ResourceType.WOOD))
+						&& node.containsLit(interned.carrying(peasantIds.get(1), ResourceType.WOOD))) { //preconditions
+					estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, false, true);
 					
-					//TODO get the new peasantID!!!!
-					literalsBuild.add(new AtTownHall(peasantIds.get(2)));
+					Node n = new Node(node, new Deposit2(peasantIds.get(0), peasantIds.get(1), ResourceType.WOOD, 2 * GATHER_AMOUNT),
+							node.getCostToNode() + 1, estimatedCost);
 					
-					estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, false, false);//TODO fix heuristic function
+					successors.add(n);
+				}
+			}
+			
+			//Gather2
+			if(!node.containsLit(interned.carrying(peasantIds.get(0), ResourceType.GOLD))
+					&& !node.containsLit(interned.carrying(peasantIds.get(1), ResourceType.GOLD))
+					&& !node.containsLit(interned.carrying(peasantIds.get(0), ResourceType.WOOD))
+					&& !node.containsLit(interned.carrying(peasantIds.get(1), ResourceType.WOOD))) {
+				if(node.containsLit(interned.atResource(peasantIds.get(0), ResourceType.GOLD))
+						&& node.containsLit(interned.atResource(peasantIds.get(1), ResourceType.GOLD))) { //preconditions
+					estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, true, false);
 					
-					Node n = new Node(node, new BuildPeasant(), literalsBuild, node.getCostToNode() + 1, estimatedCost);
+					Node n = new Node(node, new Gather2(peasantIds.get(0), peasantIds.get(1), ResourceType.GOLD, 2 * GATHER_AMOUNT),
+							node.getCostToNode() + 1, estimatedCost);
 					
-					if(!closed.contains(n)) {
-						open.add(n);
-					} else if (open.contains(n)){
-						Node toCompare = open.get(n);
-						if(toCompare.getCostToNode() > n.getCostToNode()) {
-							toCompare.setCostToNode(n.getCostToNode());
-							toCompare.setParentNode(n.getParentNode());
-						}
-					}
+					successors.add(n);
 				}
-			} else if(node.containsLit(new ContainsPeasants(3))){ //three peasants
-				//TODO deal with peasant IDs
-				//GotoResource3
-				if(node.containsLit(new AtTownHall(peasantIds.get(0)))
-						&& node.containsLit(new AtTownHall(peasantIds.get(1)))
-						&& node.containsLit(new AtTownHall(peasantIds.get(2)))
-						&& !node.containsLit(new Has(peasantIds.get(0), ResourceType.GOLD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(peasantIds.get(1), ResourceType.GOLD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(peasantIds.get(2), ResourceType.GOLD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(peasantIds.get(0), ResourceType.WOOD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(peasantIds.get(1), ResourceType.WOOD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(peasantIds.get(2), ResourceType.WOOD, GATHER_AMOUNT))) { //preconditions
-					if(needGold) {
-						ArrayList<Literal> literalsGold = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							if(!lit.equals(new AtTownHall(peasantIds.get(0)))
-									&& !lit.equals(new AtTownHall(peasantIds.get(1)))
-									&& !lit.equals(new AtTownHall(peasantIds.get(2)))) { //remove list
-								literalsGold.add(lit);
-							}
-						}
-						literalsGold.add(new AtResource(peasantIds.get(0), ResourceType.GOLD)); //add list
-						literalsGold.add(new AtResource(peasantIds.get(1), ResourceType.GOLD));
-						literalsGold.add(new AtResource(peasantIds.get(2), ResourceType.GOLD));
-						
-						estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, false, false);
-						
-						Node n = new Node(node, new GotoResource3(peasantIds.get(0), peasantIds.get(1), peasantIds.get(2), ResourceType.GOLD),
-								literalsGold, node.getCostToNode() + 1, estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
-					}
-					if(needWood) {
-						ArrayList<Literal> literalsWood = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							if(!lit.equals(new AtTownHall(peasantIds.get(0)))
-									&& !lit.equals(new AtTownHall(peasantIds.get(1)))
-									&& !lit.equals(new AtTownHall(peasantIds.get(2)))) { //remove list
-								literalsWood.add(lit);
-							}
-						}
-						literalsWood.add(new AtResource(peasantIds.get(0), ResourceType.WOOD)); //add list
-						literalsWood.add(new AtResource(peasantIds.get(1), ResourceType.WOOD));
-						literalsWood.add(new AtResource(peasantIds.get(2), ResourceType.WOOD));
-						
-						estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, false, false);
-						
-						Node n = new Node(node, new GotoResource3(peasantIds.get(0), peasantIds.get(1), peasantIds.get(2), ResourceType.WOOD),
-								literalsWood, node.getCostToNode() + 1, estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
-					}
+				if(node.containsLit(interned.atResource(peasantIds.get(0), ResourceType.WOOD))
+						&& node.containsLit(interned.atResource(peasantIds.get(1), ResourceType.WOOD))) { //preconditions
+					estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, true, false);
+					
+					Node n = new Node(node, new Gather2(peasantIds.get(0), peasantIds.get(1), ResourceType.WOOD, 2 * GATHER_AMOUNT),
+							node.getCostToNode() + 1, estimatedCost);
+					
+					successors.add(n);
 				}
+			}
+			
+			//BuildPeasant
+			boolean enoughGold = neededGold >= PEASANT_COST;
+			
+			if(enoughGold) { //preconditions
+				estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, false, false);//TODO fix heuristic function
 				
-				//GotoTownHall3
-				if((node.containsLit(new AtResource(peasantIds.get(0), ResourceType.GOLD))
-							|| node.containsLit(new AtResource(peasantIds.get(0), ResourceType.WOOD)))
-						&& (node.containsLit(new Has(peasantIds.get(0), ResourceType.GOLD, GATHER_AMOUNT))
-							|| node.containsLit(new Has(peasantIds.get(0), ResourceType.WOOD, GATHER_AMOUNT)))
-						&& (node.containsLit(new AtResource(peasantIds.get(1), ResourceType.GOLD))
-							|| node.containsLit(new AtResource(peasantIds.get(1), ResourceType.WOOD)))
-						&& (node.containsLit(new Has(peasantIds.get(1), ResourceType.GOLD, GATHER_AMOUNT))
-							|| node.containsLit(new Has(peasantIds.get(1), ResourceType.WOOD, GATHER_AMOUNT)))
-						&& (node.containsLit(new AtResource(peasantIds.get(2), ResourceType.GOLD))
-							|| node.containsLit(new AtResource(peasantIds.get(2), ResourceType.WOOD)))
-						&& (node.containsLit(new Has(peasantIds.get(2), ResourceType.GOLD, GATHER_AMOUNT))
-							|| node.containsLit(new Has(peasantIds.get(2), ResourceType.WOOD, GATHER_AMOUNT)))) { //preconditions
-					ArrayList<Literal> literals = new ArrayList<Literal>();
-					for(Literal lit : node.getStateLits()) {
-						if(!lit.equals(new AtResource(peasantIds.get(0), ResourceType.GOLD))
-								&& !lit.equals(new AtResource(peasantIds.get(0), ResourceType.WOOD))
-								&& !lit.equals(new AtResource(peasantIds.get(1), ResourceType.GOLD))
-								&& !lit.equals(new AtResource(peasantIds.get(1), ResourceType.WOOD))
-								&& !lit.equals(new AtResource(peasantIds.get(2), ResourceType.GOLD))
-								&& !lit.equals(new AtResource(peasantIds.get(2), ResourceType.WOOD))) { //remove list
-							literals.add(lit);
-						}
-					}
+				Node n = new Node(node, new BuildPeasant(PEASANT_COST), node.getCostToNode() + 1, estimatedCost);
+				
+				successors.add(n);
+			}
+		} else if(PackedState.peasants(state) == 3){ //three peasants
+			//TODO deal with peasant IDs
+			//GotoResource3
+			if(node.containsLit(interned.atTownHall(peasantIds.get(0)))
+					&& node.containsLit(interned.atTownHall(peasantIds.get(1)))
+					&& node.containsLit(interned.atTownHall(peasantIds.get(2)))
+					&& !node.containsLit(interned.carrying(peasantIds.get(0), ResourceType.GOLD))
+					&& !node.containsLit(interned.carrying(peasantIds.get(1), ResourceType.GOLD))
+					&& !node.containsLit(interned.carrying(peasantIds.get(2), ResourceType.GOLD))
+					&& !node.containsLit(interned.carrying(peasantIds.get(0), ResourceType.WOOD))
+					&& !node.containsLit(interned.carrying(peasantIds.get(1), ResourceType.WOOD))
+					&& !node.containsLit(interned.carrying(peasantIds.get(2), ResourceType.WOOD))) { //preconditions
+				if(needGold) {
+					estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, false, false);
 					
-					literals.add(new AtTownHall(peasantIds.get(0))); //add list
-					literals.add(new AtTownHall(peasantIds.get(1)));
-					literals.add(new AtTownHall(peasantIds.get(2)));
-
-					estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, true, true);
+					Node n = new Node(node, new GotoResource3(peasantIds.get(0), peasantIds.get(1), peasantIds.get(2), ResourceType.GOLD),
+							node.getCostToNode() + 1, estimatedCost);
 					
-					Node n = new Node(node, new GotoTownHall3(peasantIds.get(0), peasantIds.get(1), peasantIds.get(2)),
-							literals, node.getCostToNode() + 1, estimatedCost);
+					successors.add(n);
+				}
+				if(needWood) {
+					estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, false, false);
 					
-					if(!closed.contains(n)) {
-						open.add(n);
-					} else if (open.contains(n)){
-						Node toCompare = open.get(n);
-						if(toCompare.getCostToNode() > n.getCostToNode()) {
-							toCompare.setCostToNode(n.getCostToNode());
-							toCompare.setParentNode(n.getParentNode());
-						}
-					}
+					Node n = new Node(node, new GotoResource3(peasantIds.get(0), peasantIds.get(1), peasantIds.get(2), ResourceType.WOOD),
+							node.getCostToNode() + 1, estimatedCost);
+					
+					successors.add(n);
 				}
+			}
+			
+			//GotoTownHall3
+			if((node.containsLit(interned.atResource(peasantIds.get(0), ResourceType.GOLD))
+						|| node.containsLit(interned.atResource(peasantIds.get(0), ResourceType.WOOD)))
+					&& (node.containsLit(interned.carrying(peasantIds.get(0), ResourceType.GOLD))
+						|| node.containsLit(interned.carrying(peasantIds.get(0), ResourceType.WOOD)))
+					&& (node.containsLit(interned.atResource(peasantIds.get(1), ResourceType.GOLD))
+						|| node.containsLit(interned.atResource(peasantIds.get(1), ResourceType.WOOD)))
+					&& (node.containsLit(interned.carrying(peasantIds.get(1), ResourceType.GOLD))
+						|| node.containsLit(interned.carrying(peasantIds.get(1), ResourceType.WOOD)))
+					&& (node.containsLit(interned.atResource(peasantIds.get(2), ResourceType.GOLD))
+						|| node.containsLit(interned.atResource(peasantIds.get(2), ResourceType.WOOD)))
+					&& (node.containsLit(interned.carrying(peasantIds.get(2), ResourceType.GOLD))
+						|| node.containsLit(interned.carrying(peasantIds.get(2), ResourceType.WOOD)))) { //preconditions
+				estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, true, true);
 				
-				//Deposit3
-				if(node.containsLit(new AtTownHall(peasantIds.get(0)))
-						&& node.containsLit(new AtTownHall(peasantIds.get(1)))
-						&& node.containsLit(new AtTownHall(peasantIds.get(2)))) {
-					if(node.containsLit(new Has(peasantIds.get(0), ResourceType.GOLD, GATHER_AMOUNT))
-							&& node.containsLit(new Has(peasantIds.get(1), ResourceType.GOLD, GATHER_AMOUNT))
-							&& node.containsLit(new Has(peasantIds.get(2), ResourceType.GOLD, GATHER_AMOUNT))) { //preconditions
-						ArrayList<Literal> literalsGold = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							if(!lit.equals(new Has(peasantIds.get(0), ResourceType.GOLD, GATHER_AMOUNT))
-									&& !lit.equals(new Has(peasantIds.get(1), ResourceType.GOLD, GATHER_AMOUNT))
-									&& !lit.equals(new Has(peasantIds.get(2), ResourceType.GOLD, GATHER_AMOUNT))) { //remove list
-								if(lit.getClass().toString().equals("class Has")
-										&& ((Has)lit).getObjectID() == townhallIds.get(0)
-										&& ((Has)lit).getResource().equals(ResourceType.GOLD)) {
-									literalsGold.add(new Has(townhallIds.get(0), ResourceType.GOLD, ((Has)lit).getAmount() + 3 * GATHER_AMOUNT));
-								} else {
-									literalsGold.add(lit);
-								}
-							}
-						}
-						
-						estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, false, true);
-						
-						Node n = new Node(node, new Deposit3(peasantIds.get(0), peasantIds.get(1), peasantIds.get(2), ResourceType.GOLD, 3 * GATHER_AMOUNT),
-								literalsGold, node.getCostToNode() + 1, estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
-					}
-					if(node.containsLit(new Has(peasantIds.get(0), ResourceType.WOOD, GATHER_AMOUNT))
-							&& node.containsLit(new Has(peasantIds.get(1), ResourceType.WOOD, GATHER_AMOUNT))
-							&& node.containsLit(new Has(peasantIds.get(2), ResourceType.WOOD, GATHER_AMOUNT))) { //preconditions
-						ArrayList<Literal> literalsWood = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							if(!lit.equals(new Has(peasantIds.get(0), ResourceType.WOOD, GATHER_AMOUNT))
-									&& !lit.equals(new Has(peasantIds.get(1), ResourceType.WOOD, GATHER_AMOUNT))
-									&& !lit.equals(new Has(peasantIds.get(2), ResourceType.WOOD, GATHER_AMOUNT))) { //remove list
-								if(lit.getClass().toString().equals("class Has")
-										&& ((Has)lit).getObjectID() == townhallIds.get(0)
-										&& ((Has)lit).getResource().equals(ResourceType.WOOD)) {
-									literalsWood.add(new Has(townhallIds.get(0), ResourceType.WOOD, ((Has)lit).getAmount() + 3 * GATHER_AMOUNT));
-								} else {
-									literalsWood.add(lit);
-								}
-							}
-						}
-						
-						estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, false, true);
-						
-						Node n = new Node(node, new Deposit3(peasantIds.get(0), peasantIds.get(1), peasantIds.get(2), ResourceType.WOOD, 3 * GATHER_AMOUNT),
-								literalsWood, node.getCostToNode() + 1, estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
-					}
-				}
+				Node n = new Node(node, new GotoTownHall3(peasantIds.get(0), peasantIds.get(1), peasantIds.get(2)),
+						node.getCostToNode() + 1, estimatedCost);
 				
-				//Gather3
-				if(!node.containsLit(new Has(peasantIds.get(0), ResourceType.GOLD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(peasantIds.get(1), ResourceType.GOLD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(peasantIds.get(2), ResourceType.GOLD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(peasantIds.get(0), ResourceType.WOOD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(peasantIds.get(1), ResourceType.WOOD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(peasantIds.get(2), ResourceType.WOOD, GATHER_AMOUNT))) {
-					if(node.containsLit(new AtResource(peasantIds.get(0), ResourceType.GOLD))
-							&& node.containsLit(new AtResource(peasantIds.get(1), ResourceType.GOLD))
-							&& node.containsLit(new AtResource(peasantIds.get(2), ResourceType.GOLD))) { //preconditions
-						ArrayList<Literal> literalsGold = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							literalsGold.add(lit);
-						}
-						
-						literalsGold.add(new Has(peasantIds.get(0), ResourceType.GOLD, GATHER_AMOUNT)); //add list
-						literalsGold.add(new Has(peasantIds.get(1), ResourceType.GOLD, GATHER_AMOUNT));
-						literalsGold.add(new Has(peasantIds.get(2), ResourceType.GOLD, GATHER_AMOUNT));
-						
-						estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, true, false);
-						
-						Node n = new Node(node, new Gather3(peasantIds.get(0), peasantIds.get(1), peasantIds.get(2), ResourceType.GOLD, 3 * GATHER_AMOUNT),
-								literalsGold, node.getCostToNode() + 1, estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
-					}
-					if(node.containsLit(new AtResource(peasantIds.get(0), ResourceType.WOOD))
-							&& node.containsLit(new AtResource(peasantIds.get(1), ResourceType.WOOD))
-							&& node.containsLit(new AtResource(peasantIds.get(2), ResourceType.WOOD))) { //preconditions
-						ArrayList<Literal> literalsWood = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							literalsWood.add(lit);
-						}
-						
-						literalsWood.add(new Has(peasantIds.get(0), ResourceType.WOOD, GATHER_AMOUNT)); //add list
-						literalsWood.add(new Has(peasantIds.get(1), ResourceType.WOOD, GATHER_AMOUNT));
-						literalsWood.add(new Has(peasantIds.get(2), ResourceType.WOOD, GATHER_AMOUNT));
-						
-						estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, true, false);
-						
-						Node n = new Node(node, new Gather3(peasantIds.get(0), peasantIds.get(1), peasantIds.get(2), ResourceType.WOOD, 3 * GATHER_AMOUNT),
-								literalsWood, node.getCostToNode() + 1, estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
-					}
+				successors.add(n);
+			}
+			
+			//Deposit3
+			if(node.containsLit(interned.atTownHall(peasantIds.get(0)))
+					&& node.containsLit(interned.atTownHall(peasantIds.get(1)))
+					&& node.containsLit(interned.atTownHall(peasantIds.get(2)))) {
+				if(node.containsLit(interned.carrying(peasantIds.get(0), ResourceType.GOLD))
+						&& node.containsLit(interned.carrying(peasantIds.get(1), ResourceType.GOLD))
+						&& node.containsLit(interned.carrying(peasantIds.get(2), ResourceType.GOLD))) { //preconditions
+					estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, false, true);
+					
+					Node n = new Node(node, new Deposit3(peasantIds.get(0), peasantIds.get(1), peasantIds.get(2), ResourceType.GOLD, 3 * GATHER_AMOUNT),
+							node.getCostToNode() + 1, estimatedCost);
+					
+					successors.add(n);
+				}
+				if(node.containsLit(interned.carrying(peasantIds.get(0), ResourceType.WOOD))
+						&& node.containsLit(interned.carrying(peasantIds.get(1), ResourceType.WOOD))
+						&& node.containsLit(interned.carrying(peasantIds.get(2), ResourceType.WOOD))) { //preconditions
+					estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, false, true);
+					
+					Node n = new Node(node, new Deposit3(peasantIds.get(0), peasantIds.get(1), peasantIds.get(2), ResourceType.WOOD, 3 * GATHER_AMOUNT),
+							node.getCostToNode() + 1, estimatedCost);
+					
+					successors.add(n);
+				}
+			}
+			
+			//Gather3
+			if(!node.containsLit(interned.carrying(peasantIds.get(0), ResourceType.GOLD))
+					&& !node.containsLit(interned.carrying(peasantIds.get(1), ResourceType.GOLD))
+					&& !node.containsLit(interned.carrying(peasantIds.get(2), ResourceType.GOLD))
+					&& !node.containsLit(interned.carrying(peasantIds.get(0), ResourceType.WOOD))
+					&& !node.containsLit(interned.carrying(peasantIds.get(1), ResourceType.WOOD))
+					&& !node.containsLit(interned.carrying(peasantIds.get(2), ResourceType.WOOD))) {
+				if(node.containsLit(interned.atResource(peasantIds.get(0), ResourceType.GOLD))
+						&& node.containsLit(interned.atResource(peasantIds.get(1), ResourceType.GOLD))
+						&& node.containsLit(interned.atResource(peasantIds.get(2), ResourceType.GOLD))) { //preconditions
+					estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, true, false);
+					
+					Node n = new Node(node, new Gather3(peasantIds.get(0), peasantIds.get(1), peasantIds.get(2), ResourceType.GOLD, 3 * GATHER_AMOUNT),
+							node.getCostToNode() + 1, estimatedCost);
+					
+					successors.add(n);
+				}
+				if(node.containsLit(interned.atResource(peasantIds.get(0), ResourceType.WOOD))
+						&& node.containsLit(interned.atResource(peasantIds.get(1), ResourceType.WOOD))
+						&& node.containsLit(interned.atResource(peasantIds.get(2), ResourceType.WOOD))) { //preconditions
+					estimatedCost = heuristic(targetGold - neededGold, targetWood - neededWood, true, false);
+					
+					Node n = new Node(node, new Gather3(peasantIds.get(0), peasantIds.get(1), peasantIds.get(2), ResourceType.WOOD, 3 * GATHER_AMOUNT),
+							node.getCostToNode() + 1, estimatedCost);
+					
+					successors.add(n);
 				}
 			}
 		}
-		return middleStep(newState, stateHistory);
+		
+		if(estimator != null) {
+			for(Node n : successors) {
+				n.setCostToGoal(estimator.estimate(n.getState()));
+			}
+		}
 	}
 
 	@Override
@@ -957,16 +708,16 @@ public class ForwardPlanner extends Agent {
 		if(solution.peek() != null) {
 			Action b = null;
 			Node poll = solution.poll();
-			String actString = poll.getToState().getClass().toString();
+			Act.Kind actKind = poll.getToState().getKind();
 		
 			//TODO buildPeasant
-			if(actString.equals("class GotoTownHall")){
+			if(actKind == Act.Kind.GOTO_TOWNHALL){
 				UnitView townhall = currentState.getUnit(townhallIds.get(0));
 				int townX = townhall.getXPosition();
 				int townY = townhall.getYPosition();
 				b = new LocatedAction(peasantIds.get(0), ActionType.COMPOUNDMOVE, townX, townY);
 				nextGoalID = townhallIds.get(0);
-			} else if(actString.equals("class GotoResource")) {
+			} else if(actKind == Act.Kind.GOTO_RESOURCE) {
 				ResourceType resource = ((GotoResource)poll.getToState()).getResource();
 				if(resource.equals(ResourceType.GOLD)) {
 					//goto nearest gold
@@ -981,9 +732,9 @@ public class ForwardPlanner extends Agent {
 					Point woodPos = getResourceLoc(nextGoalID);
 					b = new LocatedAction(peasantIds.get(0), ActionType.COMPOUNDMOVE, woodPos.x, woodPos.y);
 				}
-			} else if(actString.equals("class Gather")) {
+			} else if(actKind == Act.Kind.GATHER) {
 				b = new TargetedAction(peasantIds.get(0), ActionType.COMPOUNDGATHER, nextGoalID);	
-			} else if(actString.equals("class Deposit")) {
+			} else if(actKind == Act.Kind.DEPOSIT) {
 				b = new TargetedAction(peasantIds.get(0), ActionType.COMPOUNDDEPOSIT, townhallIds.get(0));
 			}
 			builder.put(peasantIds.get(0), b);
@@ -1026,6 +777,28 @@ public class ForwardPlanner extends Agent {
 		return dist;
 	}
 
+	/**
+	 * Queues a successor unless its state was already expanded. If the state is
+	 * already queued and n reaches it more cheaply, n takes its place in the queue.
+	 * 
+	 * @param n - The successor to queue
+	 */
+	private void addToOpen(Node n) {
+		if(n.getCostToGoal() >= GroundAct.INFINITE) {
+			return; //a dead end
+		}
+		if(closed.contains(n) || (dominance != null && dominance.dominated(n))) {
+			return;
+		}
+		n.setOrder(stats.generated());
+		Node toCompare = open.get(n);
+		if(toCompare == null) {
+			open.add(n);
+		} else if(toCompare.getCostToNode() > n.getCostToNode()) {
+			open.decreaseKey(n);
+		}
+	}
+
 	private int getClosestWoodID(Point unit, StateView state) {
 		List<Integer> resourceIds = state.getResourceNodeIds(Type.TREE);
 		int closestWoodID = resourceIds.get(0);
@@ -1099,13 +872,13 @@ public class ForwardPlanner extends Agent {
 		outputPlan.println("TOTAL PLAN LENGTH: " + solution.size());
 		for(Node node : solution) {
 			act = node.getToState();
-			if(act.getClass().toString().equals("class GotoResource")) {
+			if(act.getKind() == Act.Kind.GOTO_RESOURCE) {
 				outputPlan.println("Goto " + ((GotoResource)act).getResourceString());
-			} else if(act.getClass().toString().equals("class GotoTownHall")) {
+			} else if(act.getKind() == Act.Kind.GOTO_TOWNHALL) {
 				outputPlan.println("Goto TOWNHALL");
-			} else if(act.getClass().toString().equals("class Gather")) {
+			} else if(act.getKind() == Act.Kind.GATHER) {
 				outputPlan.println("Gather " + ((Gather)act).getAmount() + " " + ((Gather)act).getResourceString());
-			} else if(act.getClass().toString().equals("class Deposit")) {
+			} else if(act.getKind() == Act.Kind.DEPOSIT) {
 				outputPlan.println("Deposit " + ((Deposit)act).getAmount() + " " + ((Deposit)act).getResourceString());
 			}
 		}
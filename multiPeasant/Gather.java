@@ -1,3 +1,5 @@
+import java.util.List;
+
 import edu.cwru.sepia.environment.model.state.ResourceType;
 
 public class Gather extends Act {
@@ -7,6 +9,7 @@ public class Gather extends Act {
 	private ResourceType resource;
 	
 	public Gather(int gatherID, ResourceType resource, int amount) {
+		super(Kind.GATHER);
 		this.gatherID = gatherID;
 		this.resource = resource;
 		this.amount = amount;
@@ -38,4 +41,33 @@ public class Gather extends Act {
 		}
 		return str;
 	}
+	
+	@Override
+	public long apply(long state, PackedState encoding) {
+		return PackedState.withCargo(state, encoding.slotOf(gatherID), PackedState.cargoOf(resource));
+	}
+	
+	@Override
+	public long writes(long state, PackedState encoding) {
+		return cargoes(encoding, gatherID);
+	}
+	
+	@Override
+	public void regress(PartialState after, PackedState encoding, List<PartialState> before) {
+		int slot = encoding.slotOf(gatherID);
+		long cargo = PackedState.cargoMask(slot);
+		if(!after.constrains(cargo) || after.conflicts(cargo, PackedState.withCargo(0, slot, PackedState.cargoOf(resource)))) {
+			return;
+		}
+		PartialState pre = after.release(cargo).require(cargo, PackedState.withCargo(0, slot, PackedState.EMPTY));
+		pre = pre.require(PackedState.locationMask(slot), PackedState.withLocation(0, slot, PackedState.locationOf(resource)));
+		if(pre != null) {
+			before.add(pre);
+		}
+	}
+	
+	@Override
+	public void preconditions(PackedState encoding, List<PartialState> pre) {
+		pre.add(group(encoding, new int[] {gatherID}, PackedState.locationOf(resource), PackedState.EMPTY));
+	}
 }
@@ -1,3 +1,5 @@
+import java.util.List;
+
 import edu.cwru.sepia.environment.model.state.ResourceType;
 
 public class Gather2 extends Act {
@@ -8,6 +10,7 @@ public class Gather2 extends Act {
 	private int amount;
 	
 	public Gather2(int gatherID1, int gatherID2, ResourceType resource, int amount) {
+		super(Kind.GATHER2);
 		this.gatherID1 = gatherID1;
 		this.gatherID2 = gatherID2;
 		this.resource = resource;
@@ -46,4 +49,21 @@ public class Gather2 extends Act {
 		}
 		return str;
 	}
+	
+	@Override
+	public long apply(long state, PackedState encoding) {
+		int cargo = PackedState.cargoOf(resource);
+		state = PackedState.withCargo(state, encoding.slotOf(gatherID1), cargo);
+		return PackedState.withCargo(state, encoding.slotOf(gatherID2), cargo);
+	}
+	
+	@Override
+	public long writes(long state, PackedState encoding) {
+		return cargoes(encoding, gatherID1, gatherID2);
+	}
+	
+	@Override
+	public void preconditions(PackedState encoding, List<PartialState> pre) {
+		pre.add(group(encoding, new int[] {gatherID1, gatherID2}, PackedState.locationOf(resource), PackedState.EMPTY));
+	}
 }
@@ -1,3 +1,5 @@
+import java.util.List;
+
 import edu.cwru.sepia.environment.model.state.ResourceType;
 
 public class Gather3 extends Act {
@@ -9,6 +11,7 @@ public class Gather3 extends Act {
 	private int amount;
 	
 	public Gather3(int gatherID1, int gatherID2, int gatherID3, ResourceType resource, int amount) {
+		super(Kind.GATHER3);
 		this.gatherID1 = gatherID1;
 		this.gatherID2 = gatherID2;
 		this.gatherID3 = gatherID3;
@@ -50,4 +53,22 @@ public class Gather3 extends Act {
 		}
 		return str;
 	}
-}
\ No newline at end of file
+	
+	@Override
+	public long apply(long state, PackedState encoding) {
+		int cargo = PackedState.cargoOf(resource);
+		state = PackedState.withCargo(state, encoding.slotOf(gatherID1), cargo);
+		state = PackedState.withCargo(state, encoding.slotOf(gatherID2), cargo);
+		return PackedState.withCargo(state, encoding.slotOf(gatherID3), cargo);
+	}
+	
+	@Override
+	public long writes(long state, PackedState encoding) {
+		return cargoes(encoding, gatherID1, gatherID2, gatherID3);
+	}
+	
+	@Override
+	public void preconditions(PackedState encoding, List<PartialState> pre) {
+		pre.add(group(encoding, new int[] {gatherID1, gatherID2, gatherID3}, PackedState.locationOf(resource), PackedState.EMPTY));
+	}
+}
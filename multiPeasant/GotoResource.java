@@ -1,3 +1,5 @@
+import java.util.List;
+
 import edu.cwru.sepia.environment.model.state.ResourceType;
 
 public class GotoResource extends Act {
@@ -7,6 +9,7 @@ public class GotoResource extends Act {
 	
 	
 	public GotoResource(int moverID, ResourceType resource) {
+		super(Kind.GOTO_RESOURCE);
 		this.moverID = moverID;
 		this.resource = resource;
 	}
@@ -33,5 +36,34 @@ public class GotoResource extends Act {
 		}
 		return str;
 	}
-
+	
+	@Override
+	public long apply(long state, PackedState encoding) {
+		return PackedState.withLocation(state, encoding.slotOf(moverID), PackedState.locationOf(resource));
+	}
+	
+	@Override
+	public long writes(long state, PackedState encoding) {
+		return locations(encoding, moverID);
+	}
+	
+	@Override
+	public void regress(PartialState after, PackedState encoding, List<PartialState> before) {
+		int slot = encoding.slotOf(moverID);
+		long location = PackedState.locationMask(slot);
+		if(!after.constrains(location)
+				|| after.conflicts(location, PackedState.withLocation(0, slot, PackedState.locationOf(resource)))) {
+			return;
+		}
+		PartialState pre = after.release(location).require(location, PackedState.withLocation(0, slot, PackedState.TOWNHALL));
+		pre = pre.require(PackedState.cargoMask(slot), PackedState.withCargo(0, slot, PackedState.EMPTY));
+		if(pre != null) {
+			before.add(pre);
+		}
+	}
+	
+	@Override
+	public void preconditions(PackedState encoding, List<PartialState> pre) {
+		pre.add(group(encoding, new int[] {moverID}, PackedState.TOWNHALL, PackedState.EMPTY));
+	}
 }
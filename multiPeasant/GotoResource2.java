@@ -1,3 +1,5 @@
+import java.util.List;
+
 import edu.cwru.sepia.environment.model.state.ResourceType;
 
 public class GotoResource2 extends Act{
@@ -6,6 +8,7 @@ public class GotoResource2 extends Act{
 	private ResourceType resource;
 	
 	public GotoResource2(int moverID1, int moverID2, ResourceType resource) {
+		super(Kind.GOTO_RESOURCE2);
 		this.moverID1 = moverID1;
 		this.moverID2 = moverID2;
 		this.resource = resource;
@@ -39,5 +42,21 @@ public class GotoResource2 extends Act{
 		}
 		return str;
 	}
-
+	
+	@Override
+	public long apply(long state, PackedState encoding) {
+		int location = PackedState.locationOf(resource);
+		state = PackedState.withLocation(state, encoding.slotOf(moverID1), location);
+		return PackedState.withLocation(state, encoding.slotOf(moverID2), location);
+	}
+	
+	@Override
+	public long writes(long state, PackedState encoding) {
+		return locations(encoding, moverID1, moverID2);
+	}
+	
+	@Override
+	public void preconditions(PackedState encoding, List<PartialState> pre) {
+		pre.add(group(encoding, new int[] {moverID1, moverID2}, PackedState.TOWNHALL, PackedState.EMPTY));
+	}
 }
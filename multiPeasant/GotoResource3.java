@@ -1,3 +1,5 @@
+import java.util.List;
+
 import edu.cwru.sepia.environment.model.state.ResourceType;
 
 public class GotoResource3 extends Act{
@@ -8,6 +10,7 @@ public class GotoResource3 extends Act{
 
 	
 	public GotoResource3(int moverID1, int moverID2, int moverID3, ResourceType resource) {
+		super(Kind.GOTO_RESOURCE3);
 		this.moverID1 = moverID1;
 		this.moverID2 = moverID2;
 		this.moverID3 = moverID3;
@@ -44,5 +47,22 @@ public class GotoResource3 extends Act{
 		}
 		return str;
 	}
-
-}
\ No newline at end of file
+	
+	@Override
+	public long apply(long state, PackedState encoding) {
+		int location = PackedState.locationOf(resource);
+		state = PackedState.withLocation(state, encoding.slotOf(moverID1), location);
+		state = PackedState.withLocation(state, encoding.slotOf(moverID2), location);
+		return PackedState.withLocation(state, encoding.slotOf(moverID3), location);
+	}
+	
+	@Override
+	public long writes(long state, PackedState encoding) {
+		return locations(encoding, moverID1, moverID2, moverID3);
+	}
+	
+	@Override
+	public void preconditions(PackedState encoding, List<PartialState> pre) {
+		pre.add(group(encoding, new int[] {moverID1, moverID2, moverID3}, PackedState.TOWNHALL, PackedState.EMPTY));
+	}
+}
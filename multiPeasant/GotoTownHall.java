@@ -1,14 +1,58 @@
 
+import java.util.List;
+
+import edu.cwru.sepia.environment.model.state.ResourceType;
+
 public class GotoTownHall extends Act {
 	
 	private int moverID;	
 	
 	public GotoTownHall(int moverID) {
+		super(Kind.GOTO_TOWNHALL);
 		this.moverID = moverID;
 	}
 	
 	public int getMoverID() {
 		return moverID;
 	}
-
+	
+	@Override
+	public long apply(long state, PackedState encoding) {
+		return PackedState.withLocation(state, encoding.slotOf(moverID), PackedState.TOWNHALL);
+	}
+	
+	@Override
+	public long writes(long state, PackedState encoding) {
+		return locations(encoding, moverID);
+	}
+	
+	/**
+	 * The peasant must come from a resource carrying something. Partial states
+	 * cannot say "either", so this regresses once per resource, pairing the
+	 * location with the cargo gathered there.
+	 */
+	@Override
+	public void regress(PartialState after, PackedState encoding, List<PartialState> before) {
+		int slot = encoding.slotOf(moverID);
+		long location = PackedState.locationMask(slot);
+		if(!after.constrains(location) || after.conflicts(location, PackedState.withLocation(0, slot, PackedState.TOWNHALL))) {
+			return;
+		}
+		long cargo = PackedState.cargoMask(slot);
+		for(ResourceType resource : new ResourceType[] {ResourceType.GOLD, ResourceType.WOOD}) {
+			PartialState pre = after.require(cargo, PackedState.withCargo(0, slot, PackedState.cargoOf(resource)));
+			if(pre != null) {
+				before.add(pre.release(location).require(location,
+						PackedState.withLocation(0, slot, PackedState.locationOf(resource))));
+			}
+		}
+	}
+	
+	@Override
+	public void preconditions(PackedState encoding, List<PartialState> pre) {
+		int[] ids = {moverID};
+		for(ResourceType resource : new ResourceType[] {ResourceType.GOLD, ResourceType.WOOD}) {
+			pre.add(group(encoding, ids, PackedState.locationOf(resource), PackedState.cargoOf(resource)));
+		}
+	}
 }
@@ -1,9 +1,14 @@
+import java.util.List;
+
+import edu.cwru.sepia.environment.model.state.ResourceType;
+
 public class GotoTownHall2 extends Act {
 	
 	private int moverID1;
 	private int moverID2;
 	
 	public GotoTownHall2(int moverID1, int moverID2) {
+		super(Kind.GOTO_TOWNHALL2);
 		this.moverID1 = moverID1;
 		this.moverID2 = moverID2;
 	}
@@ -18,5 +23,22 @@ public class GotoTownHall2 extends Act {
 		return -1;
 	}
 	
+	@Override
+	public long apply(long state, PackedState encoding) {
+		state = PackedState.withLocation(state, encoding.slotOf(moverID1), PackedState.TOWNHALL);
+		return PackedState.withLocation(state, encoding.slotOf(moverID2), PackedState.TOWNHALL);
+	}
+	
+	@Override
+	public long writes(long state, PackedState encoding) {
+		return locations(encoding, moverID1, moverID2);
+	}
 	
+	@Override
+	public void preconditions(PackedState encoding, List<PartialState> pre) {
+		int[] ids = {moverID1, moverID2};
+		for(ResourceType resource : new ResourceType[] {ResourceType.GOLD, ResourceType.WOOD}) {
+			pre.add(group(encoding, ids, PackedState.locationOf(resource), PackedState.cargoOf(resource)));
+		}
+	}
 }
@@ -1,3 +1,7 @@
+import java.util.List;
+
+import edu.cwru.sepia.environment.model.state.ResourceType;
+
 public class GotoTownHall3 extends Act {
 	
 	private int moverID1;	
@@ -5,6 +9,7 @@ public class GotoTownHall3 extends Act {
 	private int moverID3;
 	
 	public GotoTownHall3(int moverID1, int moverID2, int moverID3) {
+		super(Kind.GOTO_TOWNHALL3);
 		this.moverID1 = moverID1;
 		this.moverID2 = moverID2;
 		this.moverID3 = moverID3;
@@ -21,4 +26,24 @@ public class GotoTownHall3 extends Act {
 		}
 		return -1;
 	}
-}
\ No newline at end of file
+	
+	@Override
+	public long apply(long state, PackedState encoding) {
+		state = PackedState.withLocation(state, encoding.slotOf(moverID1), PackedState.TOWNHALL);
+		state = PackedState.withLocation(state, encoding.slotOf(moverID2), PackedState.TOWNHALL);
+		return PackedState.withLocation(state, encoding.slotOf(moverID3), PackedState.TOWNHALL);
+	}
+	
+	@Override
+	public long writes(long state, PackedState encoding) {
+		return locations(encoding, moverID1, moverID2, moverID3);
+	}
+	
+	@Override
+	public void preconditions(PackedState encoding, List<PartialState> pre) {
+		int[] ids = {moverID1, moverID2, moverID3};
+		for(ResourceType resource : new ResourceType[] {ResourceType.GOLD, ResourceType.WOOD}) {
+			pre.add(group(encoding, ids, PackedState.locationOf(resource), PackedState.cargoOf(resource)));
+		}
+	}
+}
@@ -0,0 +1,305 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import edu.cwru.sepia.environment.model.state.ResourceType;
+
+/**
+ * A ground act with one of its precondition alternatives, in the form the
+ * heuristics reason over. Facts are the values of the peasant count and of
+ * each peasant's location and cargo, one bit each. The townhall's stock is
+ * kept as numbers.
+ */
+public class GroundAct {
+
+	public static final int INFINITE = Integer.MAX_VALUE / 4;
+	public static final ResourceType[] RESOURCES = {ResourceType.GOLD, ResourceType.WOOD};
+	public static final long AMOUNTS = PackedState.GOLD_MASK | PackedState.WOOD_MASK;
+	public static final int ATOMS = 4 + 8 * PackedState.MAX_PEASANTS;
+
+	private static final int MAX_DISTANCE = 16; //longer ways count as this long
+
+	private Act act;
+	private PartialState pre;
+	private int preAtoms;
+	private int addAtoms;
+	private long post; //fields the act sets, in place
+	private long postMask;
+	private int[] required = new int[RESOURCES.length];
+	private int[] delta = new int[RESOURCES.length];
+	private int period = INFINITE;
+
+	private GroundAct(Act act, PartialState pre, PackedState encoding) {
+		this.act = act;
+		this.pre = pre;
+		preAtoms = atoms(pre.getValue(), pre.getMask());
+		long before = pre.getValue();
+		for(int r = 0; r < RESOURCES.length; r++) {
+			required[r] = act.required(RESOURCES[r]);
+			before = PackedState.withAmount(before, RESOURCES[r], required[r]);
+		}
+		long after = act.apply(before, encoding);
+		for(int r = 0; r < RESOURCES.length; r++) {
+			delta[r] = PackedState.amount(after, RESOURCES[r]) - required[r];
+		}
+		for(long field : fields()) {
+			if((before & field) != (after & field)) {
+				postMask |= field;
+			}
+		}
+		addAtoms = atoms(after, postMask);
+		post = after & postMask;
+	}
+
+	/**
+	 * Grounds every precondition alternative of the acts. Acts that add stock
+	 * also get their period.
+	 *
+	 * @param encoding - The state encoding of the problem
+	 * @param acts - The ground acts available to the planner
+	 * @return The ground acts
+	 */
+	public static List<GroundAct> ground(PackedState encoding, List<Act> acts) {
+		List<GroundAct> ops = new ArrayList<GroundAct>();
+		ArrayList<PartialState> alternatives = new ArrayList<PartialState>();
+		for(Act act : acts) {
+			alternatives.clear();
+			act.preconditions(encoding, alternatives);
+			for(PartialState pre : alternatives) {
+				ops.add(new GroundAct(act, pre, encoding));
+			}
+		}
+		for(GroundAct op : ops) {
+			if(op.addsStock()) {
+				op.period = 1 + distance(op, op, ops);
+			}
+		}
+		return ops;
+	}
+
+	public Act getAct() {
+		return act;
+	}
+
+	public PartialState getPre() {
+		return pre;
+	}
+
+	public int getPreAtoms() {
+		return preAtoms;
+	}
+
+	public int getAddAtoms() {
+		return addAtoms;
+	}
+
+	/**
+	 *
+	 * @param r - Index into RESOURCES
+	 * @return The stock the act needs
+	 */
+	public int getRequired(int r) {
+		return required[r];
+	}
+
+	/**
+	 *
+	 * @param r - Index into RESOURCES
+	 * @return The change in stock
+	 */
+	public int getDelta(int r) {
+		return delta[r];
+	}
+
+	/**
+	 *
+	 * @return The act plus the fewest acts from its effects back to its
+	 * preconditions, or INFINITE if it does not add stock
+	 */
+	public int getPeriod() {
+		return period;
+	}
+
+	/**
+	 *
+	 * @return The facts the act adds, as progress reports them
+	 */
+	public int getProgress() {
+		int progress = addAtoms;
+		for(int r = 0; r < RESOURCES.length; r++) {
+			if(delta[r] > 0) {
+				progress |= 1 << (ATOMS + r);
+			}
+		}
+		return progress;
+	}
+
+	public boolean addsStock() {
+		for(int r = 0; r < RESOURCES.length; r++) {
+			if(delta[r] > 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 *
+	 * @return True if the act applies in state, stock included
+	 */
+	public boolean applies(long state) {
+		if(!pre.satisfiedBy(state)) {
+			return false;
+		}
+		for(int r = 0; r < RESOURCES.length; r++) {
+			if(PackedState.amount(state, RESOURCES[r]) < required[r]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * True if state cannot reach the goal. The peasant count never falls, and
+	 * the stock only falls by what building the missing peasants spends.
+	 *
+	 * @param ops - The ground acts of the problem
+	 * @param slots - The most peasants there can be
+	 */
+	public static boolean deadEnd(long state, long goalState, long goalMask, List<GroundAct> ops, int slots) {
+		int peasants = PackedState.peasants(state);
+		int finalPeasants = slots;
+		if((goalMask & PackedState.PEASANT_MASK) != 0) {
+			finalPeasants = PackedState.peasants(goalState);
+			if(peasants > finalPeasants) {
+				return true;
+			}
+		}
+		for(int r = 0; r < RESOURCES.length; r++) {
+			if((goalMask & PackedState.amountMask(RESOURCES[r])) == 0) {
+				continue;
+			}
+			int spend = 0;
+			for(GroundAct op : ops) {
+				spend = Math.max(spend, -op.delta[r]);
+			}
+			int surplus = PackedState.amount(state, RESOURCES[r]) - PackedState.amount(goalState, RESOURCES[r]);
+			if(surplus > Math.max(0, finalPeasants - peasants) * spend) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * The fewest acts from the effects of a to the preconditions of b,
+	 * ignoring stock. Fields that a leaves unknown are assumed to be whatever
+	 * an act needs, so this is a lower bound.
+	 */
+	public static int distance(GroundAct a, GroundAct b, List<GroundAct> ops) {
+		return distance(new PartialState((a.pre.getValue() & ~a.postMask) | a.post, a.pre.getMask() | a.postMask), b, ops);
+	}
+
+	/**
+	 * The fewest acts from a partial state to the preconditions of b, ignoring
+	 * stock.
+	 */
+	public static int distance(PartialState start, GroundAct b, List<GroundAct> ops) {
+		ArrayList<PartialState> layer = new ArrayList<PartialState>();
+		HashSet<PartialState> seen = new HashSet<PartialState>();
+		layer.add(start);
+		seen.add(start);
+		for(int depth = 0; depth < MAX_DISTANCE; depth++) {
+			ArrayList<PartialState> next = new ArrayList<PartialState>();
+			for(PartialState s : layer) {
+				if(compatible(s, b.pre)) {
+					return depth;
+				}
+				for(GroundAct op : ops) {
+					if(compatible(s, op.pre)) {
+						PartialState t = new PartialState((s.getValue() & ~op.postMask) | op.post, s.getMask() | op.postMask);
+						if(seen.add(t)) {
+							next.add(t);
+						}
+					}
+				}
+			}
+			layer = next;
+		}
+		return MAX_DISTANCE;
+	}
+
+	/**
+	 *
+	 * @return True if the fields both constrain agree
+	 */
+	private static boolean compatible(PartialState s, PartialState pre) {
+		long shared = s.getMask() & pre.getMask();
+		return (s.getValue() & shared) == (pre.getValue() & shared);
+	}
+
+	private static long[] fields() {
+		long[] fields = new long[1 + 2 * PackedState.MAX_PEASANTS];
+		fields[0] = PackedState.PEASANT_MASK;
+		for(int slot = 0; slot < PackedState.MAX_PEASANTS; slot++) {
+			fields[1 + 2 * slot] = PackedState.locationMask(slot);
+			fields[2 + 2 * slot] = PackedState.cargoMask(slot);
+		}
+		return fields;
+	}
+
+	/**
+	 * The facts of the fields in mask, one bit each: the peasant count in bits
+	 * 0-3, then eight bits per slot for its location and cargo.
+	 */
+	public static int atoms(long value, long mask) {
+		int atoms = 0;
+		if((mask & PackedState.PEASANT_MASK) == PackedState.PEASANT_MASK) {
+			atoms |= 1 << PackedState.peasants(value);
+		}
+		for(int slot = 0; slot < PackedState.MAX_PEASANTS; slot++) {
+			if((mask & PackedState.locationMask(slot)) == PackedState.locationMask(slot)) {
+				atoms |= 1 << (4 + 8 * slot + PackedState.location(value, slot));
+			}
+			if((mask & PackedState.cargoMask(slot)) == PackedState.cargoMask(slot)) {
+				atoms |= 1 << (8 + 8 * slot + PackedState.cargo(value, slot));
+			}
+		}
+		return atoms;
+	}
+
+	/**
+	 * The facts successor has and state lacks, with bit ATOMS + r set when
+	 * the stock of RESOURCES[r] grows.
+	 */
+	public static int progress(long state, long successor) {
+		int progress = atoms(successor) & ~atoms(state);
+		for(int r = 0; r < RESOURCES.length; r++) {
+			if(PackedState.amount(successor, RESOURCES[r]) > PackedState.amount(state, RESOURCES[r])) {
+				progress |= 1 << (ATOMS + r);
+			}
+		}
+		return progress;
+	}
+
+	/**
+	 * The progress of the act that led to a successor. A macro counts as its
+	 * first step.
+	 */
+	public static int progress(Node successor) {
+		long state = successor.getParentNode().getState();
+		Act act = successor.getToState();
+		if(act instanceof Macro) {
+			return progress(state, ((Macro)act).getSteps().get(0).apply(state, successor.getLiterals().getEncoding()));
+		}
+		return progress(state, successor.getState());
+	}
+
+	/**
+	 *
+	 * @return The facts of a whole state
+	 */
+	public static int atoms(long state) {
+		return atoms(state, ~AMOUNTS);
+	}
+}
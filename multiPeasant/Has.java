@@ -2,16 +2,18 @@ import edu.cwru.sepia.environment.model.state.ResourceType;
 
 public class Has extends Literal {
 	
-	private int objectID;
-	private ResourceType resource;
-	private int amount;
+	private final int objectID;
+	private final ResourceType resource;
+	private final int amount;
 
 	public Has(int objectID, ResourceType resource, int amount) {
+		super(Kind.HAS);
 		this.objectID = objectID;
 		this.resource = resource;
 		this.amount = amount;
 	}
 
+	@Override
 	public int getObjectID() {
 		return objectID;
 	}
@@ -26,7 +28,7 @@ public class Has extends Literal {
 	
 	@Override
 	public boolean equals(Object o) {
-		if(!o.getClass().toString().equals("class Has")) {
+		if(!(o instanceof Literal) || ((Literal)o).getKind() != Kind.HAS) {
 			return false;
 		}
 		Has h = (Has)o;
@@ -35,4 +37,9 @@ public class Has extends Literal {
 		}
 		return false;
 	}
+	
+	@Override
+	public int hashCode() {
+		return (objectID * 31 + resource.ordinal()) * 31 + amount;
+	}
 }
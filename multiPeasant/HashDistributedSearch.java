@@ -0,0 +1,219 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Hash distributed A* (HDA*). Every state is owned by one worker, chosen by its
+ * Zobrist hash. Each worker keeps its own open list and closed set. Successors
+ * it owns go straight into its open list, and the rest to the owner's
+ * lock-free inbox, so no search structure is shared.
+ *
+ * Workers do not expand in global f order, so a worker may close a state
+ * before the cheapest path to it arrives. A cheaper path reopens the state.
+ *
+ * A goal popped by a worker becomes the incumbent if its f beats the current
+ * one. The search ends once every worker is out of nodes that beat the
+ * incumbent and no successor is in flight, so the plan is optimal when the
+ * heuristic is admissible. With an inadmissible heuristic the workers see
+ * nodes in a different order than sequential A* and may settle on a
+ * different plan.
+ */
+public class HashDistributedSearch {
+
+	private static final Logger logger = Logger.getLogger(HashDistributedSearch.class.getCanonicalName());
+	private static final long IDLE_PARK_NANOS = 50000;
+
+	private SearchProblem problem;
+	private TieBreak tieBreak;
+	private Worker[] workers;
+	private AtomicReference<Node> incumbent = new AtomicReference<Node>();
+	private AtomicLong sent = new AtomicLong();
+	private AtomicLong received = new AtomicLong();
+	private volatile boolean done;
+
+	/**
+	 *
+	 * @param problem - The state space to search
+	 * @param tieBreak - The order of each worker's open list
+	 * @param threads - The number of workers
+	 */
+	public HashDistributedSearch(SearchProblem problem, TieBreak tieBreak, int threads) {
+		this.problem = problem;
+		this.tieBreak = tieBreak;
+		this.workers = new Worker[Math.max(1, threads)];
+	}
+
+	/**
+	 *
+	 * @param root - The initial node
+	 * @return The best goal node found, or null if there is none
+	 */
+	public Node search(Node root) {
+		for(int i = 0; i < workers.length; i++) {
+			workers[i] = new Worker();
+		}
+		send(root);
+
+		Thread[] running = new Thread[workers.length];
+		for(int i = 0; i < workers.length; i++) {
+			running[i] = new Thread(workers[i], "hda-" + i);
+			running[i].start();
+		}
+		for(Thread thread : running) {
+			try {
+				thread.join();
+			} catch(InterruptedException e) {
+				done = true;
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		if(logger.isLoggable(Level.FINE)) {
+			SearchStats total = new SearchStats();
+			StringBuilder perWorker = new StringBuilder();
+			for(Worker worker : workers) {
+				total.add(worker.stats);
+				perWorker.append(' ').append(worker.stats.getExpanded());
+			}
+			logger.fine("HDA* with " + workers.length + " workers (" + tieBreak + "): " + total
+					+ ", expanded per worker" + perWorker);
+		}
+		return incumbent.get();
+	}
+
+	private Worker owner(Node n) {
+		long hash = n.getHash();
+		return workers[(int)(((hash >>> 32) ^ hash) & Integer.MAX_VALUE) % workers.length];
+	}
+
+	private void send(Node n) {
+		sent.incrementAndGet(); //before the enqueue, so an in-flight node is always counted
+		owner(n).inbox.add(n);
+	}
+
+	private static int f(Node n) {
+		return n.getCostToNode() + n.getCostToGoal();
+	}
+
+	/**
+	 * Offers a goal node as the new incumbent.
+	 */
+	private void offerGoal(Node goal) {
+		while(true) {
+			Node best = incumbent.get();
+			if(best != null && f(best) <= f(goal)) {
+				return;
+			}
+			if(incumbent.compareAndSet(best, goal)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * True when no worker has work and no node is in flight. The activity
+	 * count is read before and after the other checks, so a worker that
+	 * receives a node during the check makes it fail.
+	 */
+	private boolean quiescent() {
+		long before = activity();
+		for(Worker worker : workers) {
+			if(!worker.idle) {
+				return false;
+			}
+		}
+		if(sent.get() != received.get()) {
+			return false;
+		}
+		return activity() == before;
+	}
+
+	private long activity() {
+		long total = 0;
+		for(Worker worker : workers) {
+			total += worker.activity;
+		}
+		return total;
+	}
+
+	private class Worker implements Runnable {
+
+		private ConcurrentLinkedQueue<Node> inbox = new ConcurrentLinkedQueue<Node>();
+		private LookupPriorityQueue<Node> open = new LookupPriorityQueue<Node>(tieBreak);
+		private HashMap<Node, Node> closed = new HashMap<Node, Node>();
+		private ArrayList<Node> successors = new ArrayList<Node>();
+		private SearchStats stats = new SearchStats();
+		private volatile boolean idle;
+		private volatile long activity;
+
+		@Override
+		public void run() {
+			while(!done) {
+				Node message;
+				while((message = inbox.poll()) != null) {
+					idle = false;
+					activity++;
+					receive(message);
+					received.incrementAndGet(); //only once its work is queued
+				}
+
+				Node best = incumbent.get();
+				Node node = open.peek();
+				if(node == null || (best != null && f(node) >= f(best))) {
+					idle = true;
+					if(quiescent()) {
+						done = true;
+					} else {
+						LockSupport.parkNanos(IDLE_PARK_NANOS);
+					}
+					continue;
+				}
+
+				idle = false;
+				activity++;
+				open.poll();
+				if(problem.isGoal(node)) {
+					offerGoal(node);
+					continue;
+				}
+				closed.put(node, node);
+				stats.expanded();
+
+				successors.clear();
+				problem.expand(node, successors);
+				for(Node n : successors) {
+					if(n.getCostToGoal() >= GroundAct.INFINITE) {
+						continue; //a dead end
+					}
+					if(owner(n) == this) {
+						receive(n); //no handoff for the worker's own states
+					} else {
+						send(n);
+					}
+				}
+			}
+		}
+
+		private void receive(Node n) {
+			Node known = closed.get(n);
+			if(known != null) {
+				if(known.getCostToNode() <= n.getCostToNode()) {
+					return;
+				}
+				closed.remove(n); //closed too early, through a costlier path
+			}
+			n.setOrder(stats.generated());
+			Node toCompare = open.get(n);
+			if(toCompare == null) {
+				open.add(n);
+			} else if(toCompare.getCostToNode() > n.getCostToNode()) {
+				open.decreaseKey(n);
+			}
+		}
+	}
+}
@@ -0,0 +1,33 @@
+/**
+ * An estimate of the number of acts from a packed state to the goal, for
+ * planners that replace their built-in formula.
+ */
+public interface Heuristic {
+
+	/**
+	 *
+	 * @param state - A packed state
+	 * @return The estimated number of acts to the goal
+	 */
+	public int estimate(long state);
+
+	/**
+	 * The facts the estimate counts on achieving next. Successors that achieve
+	 * one are preferred.
+	 *
+	 * @param state - A packed state
+	 * @return Facts as GroundAct.progress reports them
+	 */
+	public int helpful(long state);
+
+	/**
+	 * Both at once, for searches that need the facts of every state they
+	 * estimate. Heuristics that find both from the same relaxed plan do the
+	 * work once.
+	 *
+	 * @param state - A packed state
+	 * @param helpful - Receives in its first element what helpful(state) returns
+	 * @return The estimated number of acts to the goal
+	 */
+	public int estimate(long state, int[] helpful);
+}
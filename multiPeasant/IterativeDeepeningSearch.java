@@ -0,0 +1,160 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Memory-bounded IDA*. Each iteration is a depth-first search that cuts off
+ * nodes whose f exceeds the threshold, and the next threshold is the smallest
+ * f that was cut. Only the current path and its unvisited siblings are kept,
+ * plus a transposition table of the cheapest g per state that stops duplicate
+ * paths. The table holds at most maxNodes states. Once it is full, new states
+ * are only checked against the current path, so memory stays fixed and
+ * duplicates cost time instead.
+ *
+ * Reports the iterations, the peak number of retained nodes and the
+ * re-expansions: every expansion of a state after its first, in this
+ * iteration or an earlier one. Counting them needs every state expanded so
+ * far, which the node cap does not bound, so their hashes are only kept
+ * while the log is at FINE.
+ */
+public class IterativeDeepeningSearch {
+
+	private static final Logger logger = Logger.getLogger(IterativeDeepeningSearch.class.getCanonicalName());
+
+	private SearchProblem problem;
+	private TieBreak tieBreak;
+	private int maxNodes;
+
+	private HashMap<Node, Integer> table = new HashMap<Node, Integer>();
+	private HashSet<Node> path = new HashSet<Node>();
+	private HashSet<Long> expanded; //hashes of the states expanded so far, for the log only
+	private SearchStats stats = new SearchStats();
+	private int iterations;
+	private long reexpanded;
+	private long peakRetained;
+
+	private static class Frame {
+		private ArrayList<Node> children = new ArrayList<Node>();
+		private int next;
+	}
+
+	/**
+	 *
+	 * @param problem - The state space to search
+	 * @param tieBreak - The order siblings are visited in
+	 * @param maxNodes - The most states the transposition table may hold
+	 */
+	public IterativeDeepeningSearch(SearchProblem problem, TieBreak tieBreak, int maxNodes) {
+		this.problem = problem;
+		this.tieBreak = tieBreak;
+		this.maxNodes = Math.max(0, maxNodes);
+	}
+
+	/**
+	 *
+	 * @param root - The initial node
+	 * @return The first goal node found within the lowest threshold, or null if there is none
+	 */
+	public Node search(Node root) {
+		int threshold = f(root);
+		if(logger.isLoggable(Level.FINE)) {
+			expanded = new HashSet<Long>();
+		}
+		while(true) {
+			iterations++;
+			int[] next = {Integer.MAX_VALUE};
+			Node goal = iterate(root, threshold, next);
+
+			if(goal != null || next[0] == Integer.MAX_VALUE) {
+				if(logger.isLoggable(Level.FINE)) {
+					logger.fine("IDA* " + iterations + " iterations, final threshold " + threshold + ", " + stats
+							+ ", re-expanded " + reexpanded + ", peak retained nodes " + peakRetained);
+				}
+				return goal;
+			}
+			threshold = next[0];
+		}
+	}
+
+	/**
+	 * One depth-first pass, with an explicit stack since plans can be hundreds
+	 * of actions long.
+	 *
+	 * @param next - Receives the smallest f above the threshold
+	 */
+	private Node iterate(Node root, int threshold, int[] next) {
+		table.clear();
+		path.clear();
+		ArrayList<Frame> stack = new ArrayList<Frame>();
+		long retained = 0; //nodes held by the stack
+
+		Frame top = new Frame();
+		top.children.add(root);
+		stack.add(top);
+		retained++;
+
+		while(!stack.isEmpty()) {
+			top = stack.get(stack.size() - 1);
+			if(top.next == top.children.size()) {
+				stack.remove(stack.size() - 1);
+				retained -= top.children.size();
+				if(!stack.isEmpty()) {
+					Frame parent = stack.get(stack.size() - 1);
+					path.remove(parent.children.get(parent.next - 1));
+				}
+				continue;
+			}
+			Node node = top.children.get(top.next++);
+
+			int f = f(node);
+			if(f > threshold) {
+				if(f < next[0]) {
+					next[0] = f;
+				}
+				continue;
+			}
+			if(problem.isGoal(node)) {
+				return node;
+			}
+			if(path.contains(node)) {
+				continue;
+			}
+			Integer seen = table.get(node);
+			if(seen != null && seen <= node.getCostToNode()) {
+				continue;
+			}
+			if(seen != null || table.size() < maxNodes) {
+				table.put(node, node.getCostToNode());
+			}
+
+			stats.expanded();
+			if(expanded != null && !expanded.add(node.getHash())) {
+				reexpanded++;
+			}
+			Frame frame = new Frame();
+			problem.expand(node, frame.children);
+			for(Iterator<Node> it = frame.children.iterator(); it.hasNext();) {
+				Node n = it.next();
+				if(n.getCostToGoal() >= GroundAct.INFINITE) {
+					it.remove(); //a dead end, which would also make the next threshold useless
+				} else {
+					n.setOrder(stats.generated());
+				}
+			}
+			Collections.sort(frame.children, tieBreak);
+			stack.add(frame);
+			path.add(node);
+			retained += frame.children.size();
+			peakRetained = Math.max(peakRetained, retained + table.size());
+		}
+		return null;
+	}
+
+	private static int f(Node n) {
+		return n.getCostToNode() + n.getCostToGoal();
+	}
+}
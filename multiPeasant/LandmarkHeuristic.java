@@ -0,0 +1,354 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LAMA-style landmark counting, with stock goals handled as counted deposits.
+ *
+ * Landmarks are found once, from the initial state, by backchaining from the
+ * goal over the acts' preconditions. Every act that can first achieve a
+ * landmark fact needs the facts their preconditions share, and those facts
+ * are landmarks ordered before it. A stock goal is reached through deposits,
+ * so the facts all deposits share are landmarks too. Stock that the
+ * achievers of a landmark require is a landmark of its own. That is how the
+ * gold for a new peasant comes before the peasant.
+ *
+ * A state needs a fact landmark if the fact is false, no landmark after it
+ * holds, and it still leads to the goal or to stock still missing. Facts
+ * every deposit needs are needed again whenever they are false. Stock is counted in deposits,
+ * phase by phase. The group first earns what the next peasant costs, then
+ * grows and carries on with larger loads. The first deposit counts one, and
+ * each further deposit counts the acts of one round trip. States that
+ * GroundAct.deadEnd rules out get INFINITE.
+ */
+public class LandmarkHeuristic implements Heuristic {
+
+	private static final int INFINITE = GroundAct.INFINITE;
+	private static final long AMOUNTS = GroundAct.AMOUNTS;
+	private static final int RESOURCE_COUNT = GroundAct.RESOURCES.length;
+	private static final int ATOMS = GroundAct.ATOMS;
+
+	private List<GroundAct> ops;
+	private int slots;
+	private long goalState;
+	private long goalMask;
+	private int goalAtoms;
+	private int goalPeasants; //0 if the goal does not fix the count
+
+	private int landmarks; //fact landmarks
+	private int[] after = new int[ATOMS]; //landmarks ordered after each landmark, transitively
+	private int[] depositPre = new int[RESOURCE_COUNT]; //landmarks every deposit of a resource needs
+	private int[] beforeStock = new int[RESOURCE_COUNT]; //landmarks ordered before each stock goal, transitively
+	private int beforeGoal; //landmarks ordered before goal facts, transitively
+	private int[][] buildRequired; //by peasant count reached, then resource
+	private int[][] buildSpent;
+	private int[][] load; //largest deposit by resource, then peasant count
+	private int[] period;
+
+	private AtomicLong evaluations = new AtomicLong();
+
+	/**
+	 *
+	 * @param encoding - The state encoding of the problem
+	 * @param acts - The ground acts available to the planner
+	 * @param initialState - The packed initial state, which landmarks are found from
+	 * @param goalState - The packed goal
+	 * @param goalMask - The fields the goal constrains
+	 */
+	public LandmarkHeuristic(PackedState encoding, List<Act> acts, long initialState, long goalState, long goalMask) {
+		this.goalState = goalState;
+		this.goalMask = goalMask;
+		ops = GroundAct.ground(encoding, acts);
+		goalAtoms = GroundAct.atoms(goalState, goalMask & ~AMOUNTS);
+		if((goalMask & PackedState.PEASANT_MASK) != 0) {
+			goalPeasants = PackedState.peasants(goalState);
+		}
+
+		slots = encoding.getSlotCount();
+		buildRequired = new int[slots + 1][RESOURCE_COUNT];
+		buildSpent = new int[slots + 1][RESOURCE_COUNT];
+		load = new int[RESOURCE_COUNT][slots + 1];
+		period = new int[RESOURCE_COUNT];
+		for(int r = 0; r < RESOURCE_COUNT; r++) {
+			period[r] = INFINITE;
+			for(GroundAct op : ops) {
+				if(op.getDelta(r) > 0) {
+					period[r] = Math.min(period[r], op.getPeriod());
+					for(int peasants = slotsUsed(op); peasants <= slots; peasants++) {
+						load[r][peasants] = Math.max(load[r][peasants], op.getDelta(r));
+					}
+				}
+			}
+		}
+
+		extract(initialState);
+	}
+
+	/**
+	 * Backchains from the goal. Orderings are kept transitively closed.
+	 */
+	private void extract(long initialState) {
+		int initial = GroundAct.atoms(initialState);
+		int reachable = reachable(initial, -1);
+		ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+
+		for(int atom = 0; atom < ATOMS; atom++) {
+			if((goalAtoms & (1 << atom)) != 0) {
+				landmarks |= 1 << atom;
+				queue.add(atom);
+			}
+		}
+		for(int r = 0; r < RESOURCE_COUNT; r++) {
+			int shared = ~0;
+			for(GroundAct op : ops) {
+				if(op.getDelta(r) > 0 && (op.getPreAtoms() & ~reachable) == 0) {
+					shared &= op.getPreAtoms();
+				}
+			}
+			if(shared != ~0) {
+				depositPre[r] = shared;
+				beforeStock[r] = shared;
+				queue.addAll(newLandmarks(shared));
+			}
+		}
+
+		while(!queue.isEmpty()) {
+			int atom = queue.poll();
+			if((initial & (1 << atom)) != 0) {
+				continue; //holds already, nothing to achieve it
+			}
+			int without = reachable(initial, atom);
+			int shared = ~0;
+			int[] required = null;
+			int[] spent = null;
+			for(GroundAct op : ops) {
+				if((op.getAddAtoms() & (1 << atom)) == 0 || (op.getPreAtoms() & ~without) != 0) {
+					continue;
+				}
+				shared &= op.getPreAtoms();
+				if(required == null) {
+					required = new int[RESOURCE_COUNT];
+					spent = new int[RESOURCE_COUNT];
+					for(int r = 0; r < RESOURCE_COUNT; r++) {
+						required[r] = INFINITE;
+						spent[r] = INFINITE;
+					}
+				}
+				for(int r = 0; r < RESOURCE_COUNT; r++) {
+					required[r] = Math.min(required[r], op.getRequired(r));
+					spent[r] = Math.min(spent[r], Math.max(0, -op.getDelta(r)));
+				}
+			}
+			if(required == null) {
+				continue; //unreachable
+			}
+			queue.addAll(newLandmarks(shared));
+			for(int before = 0; before < ATOMS; before++) {
+				if((shared & (1 << before)) != 0) {
+					order(before, atom);
+				}
+			}
+			if(atom < buildRequired.length) { //a peasant count
+				buildRequired[atom] = required;
+				buildSpent[atom] = spent;
+			}
+		}
+
+		for(int atom = 0; atom < ATOMS; atom++) {
+			if((after[atom] & goalAtoms) != 0) {
+				beforeGoal |= 1 << atom;
+			}
+			for(int r = 0; r < RESOURCE_COUNT; r++) {
+				if((after[atom] & beforeStock[r]) != 0) {
+					beforeStock[r] |= 1 << atom;
+				}
+			}
+		}
+	}
+
+	private List<Integer> newLandmarks(int atoms) {
+		List<Integer> found = new ArrayList<Integer>();
+		for(int atom = 0; atom < ATOMS; atom++) {
+			if((atoms & (1 << atom)) != 0 && (landmarks & (1 << atom)) == 0) {
+				landmarks |= 1 << atom;
+				found.add(atom);
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Orders before ahead of atom, and of everything after atom.
+	 */
+	private void order(int before, int atom) {
+		int successors = (1 << atom) | after[atom];
+		for(int a = 0; a < ATOMS; a++) {
+			if(a == before || (after[a] & (1 << before)) != 0) {
+				after[a] |= successors;
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param forbidden - An atom no act may add, or -1
+	 * @return The facts reachable in the relaxation, stock aside
+	 */
+	private int reachable(int initial, int forbidden) {
+		int reached = initial;
+		int mask = forbidden < 0 ? ~0 : ~(1 << forbidden);
+		boolean changed = true;
+		while(changed) {
+			changed = false;
+			for(GroundAct op : ops) {
+				int added = op.getAddAtoms() & mask & ~reached;
+				if(added != 0 && (op.getPreAtoms() & ~reached) == 0) {
+					reached |= added;
+					changed = true;
+				}
+			}
+		}
+		return reached;
+	}
+
+	@Override
+	public int estimate(long state) {
+		evaluations.incrementAndGet();
+		if(GroundAct.deadEnd(state, goalState, goalMask, ops, slots)) {
+			return INFINITE;
+		}
+		boolean[] open = new boolean[RESOURCE_COUNT];
+		int h = stock(state, open);
+		if(h >= INFINITE) {
+			return INFINITE;
+		}
+		return h + Integer.bitCount(needed(state, open));
+	}
+
+	/**
+	 * The needed landmarks, and the stock still missing.
+	 */
+	@Override
+	public int helpful(long state) {
+		boolean[] open = new boolean[RESOURCE_COUNT];
+		stock(state, open);
+		return withStock(needed(state, open), open);
+	}
+
+	@Override
+	public int estimate(long state, int[] helpful) {
+		evaluations.incrementAndGet();
+		if(GroundAct.deadEnd(state, goalState, goalMask, ops, slots)) {
+			helpful[0] = 0;
+			return INFINITE;
+		}
+		boolean[] open = new boolean[RESOURCE_COUNT];
+		int h = stock(state, open);
+		int needed = needed(state, open);
+		helpful[0] = withStock(needed, open);
+		return h >= INFINITE ? INFINITE : h + Integer.bitCount(needed);
+	}
+
+	private static int withStock(int needed, boolean[] open) {
+		for(int r = 0; r < RESOURCE_COUNT; r++) {
+			if(open[r]) {
+				needed |= 1 << (ATOMS + r);
+			}
+		}
+		return needed;
+	}
+
+	/**
+	 * Counts the acts of the deposits still to make.
+	 *
+	 * @param open - Receives which resources still need deposits
+	 */
+	private int stock(long state, boolean[] open) {
+		int peasants = Math.min(PackedState.peasants(state), slots); //peasants beyond the slots are not tracked
+		int finalPeasants = Math.min(Math.max(peasants, goalPeasants), slots);
+
+		int h = 0;
+		for(int r = 0; r < RESOURCE_COUNT; r++) {
+			int amount = PackedState.amount(state, GroundAct.RESOURCES[r]);
+			int deposits = 0;
+			for(int count = peasants + 1; count <= finalPeasants; count++) {
+				int gap = buildRequired[count][r] - amount;
+				if(gap > 0) {
+					deposits += trips(gap, load[r][count - 1]);
+					amount += gap;
+				}
+				amount -= buildSpent[count][r];
+			}
+			int gap = -amount;
+			if((goalMask & PackedState.amountMask(GroundAct.RESOURCES[r])) != 0) {
+				gap += PackedState.amount(goalState, GroundAct.RESOURCES[r]);
+			}
+			if(gap > 0) {
+				deposits += trips(gap, load[r][finalPeasants]);
+			}
+			if(deposits >= INFINITE || (deposits > 1 && period[r] >= INFINITE)) {
+				return INFINITE;
+			}
+			if(deposits > 0) {
+				open[r] = true;
+				h += 1 + (deposits - 1) * period[r];
+			}
+		}
+		return h;
+	}
+
+	/**
+	 *
+	 * @return The fact landmarks state needs
+	 */
+	private int needed(long state, boolean[] open) {
+		int atoms = GroundAct.atoms(state);
+		int needed = 0;
+		for(int atom = 0; atom < ATOMS; atom++) {
+			int bit = 1 << atom;
+			if((landmarks & bit) == 0 || (atoms & bit) != 0) {
+				continue;
+			}
+			boolean passed = (after[atom] & atoms) != 0;
+			boolean need = !passed && ((goalAtoms & bit) != 0 || (beforeGoal & bit) != 0);
+			for(int r = 0; r < RESOURCE_COUNT; r++) {
+				if(open[r]) {
+					need |= (depositPre[r] & bit) != 0; //needed again for every deposit
+					need |= !passed && (beforeStock[r] & bit) != 0;
+				}
+			}
+			if(need) {
+				needed |= bit;
+			}
+		}
+		return needed;
+	}
+
+	/**
+	 *
+	 * @return The number of fact landmarks and of estimates
+	 */
+	@Override
+	public String toString() {
+		return "landmarks, " + Integer.bitCount(landmarks) + " facts, " + evaluations.get() + " estimates";
+	}
+
+	private static int trips(int amount, int load) {
+		return load <= 0 ? INFINITE : (amount + load - 1) / load;
+	}
+
+	/**
+	 *
+	 * @return The number of peasants an act needs
+	 */
+	private static int slotsUsed(GroundAct op) {
+		int used = 1;
+		for(int slot = 0; slot < PackedState.MAX_PEASANTS; slot++) {
+			if((op.getPre().getMask() & PackedState.locationMask(slot)) != 0) {
+				used = slot + 1;
+			}
+		}
+		return used;
+	}
+}
@@ -1,6 +1,35 @@
 public abstract class Literal {
 	
+	public enum Kind {
+		HAS, AT_TOWNHALL, AT_RESOURCE, CONTAINS_PEASANTS
+	}
+	
+	public static final int NO_OBJECT = -1;
+	
+	private final Kind kind;
+	
+	protected Literal(Kind kind) {
+		this.kind = kind;
+	}
+	
+	/**
+	 * 
+	 * @return The type of the literal, for dispatch without class lookups
+	 */
+	public Kind getKind() {
+		return kind;
+	}
+	
+	/**
+	 * 
+	 * @return The ID of the unit the literal is about, or NO_OBJECT
+	 */
+	public abstract int getObjectID();
+	
 	@Override
 	public abstract boolean equals(Object o);
 	
+	@Override
+	public abstract int hashCode();
+	
 }
@@ -0,0 +1,118 @@
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+
+import edu.cwru.sepia.environment.model.state.ResourceType;
+
+/**
+ * Canonical instances of the literals of one planning problem. They are created
+ * once, so precondition checks reuse them instead of allocating a throwaway
+ * literal for every test, and every state's literal list shares them.
+ */
+public class LiteralTable {
+
+	private PackedState encoding;
+	private AtTownHall[] atTownHall;
+	private AtResource[][] atResource;
+	private Has[][] carrying;
+	private ContainsPeasants[] containsPeasants;
+	private ConcurrentHashMap<Integer, Has> townhallGold = new ConcurrentHashMap<Integer, Has>();
+	private ConcurrentHashMap<Integer, Has> townhallWood = new ConcurrentHashMap<Integer, Has>();
+
+	/**
+	 * 
+	 * @param encoding - Maps peasant IDs to slots
+	 */
+	public LiteralTable(PackedState encoding) {
+		this.encoding = encoding;
+		int slots = encoding.getSlotCount();
+		ResourceType[] resources = ResourceType.values();
+		atTownHall = new AtTownHall[slots];
+		atResource = new AtResource[slots][resources.length];
+		carrying = new Has[slots][resources.length];
+		for(int slot = 0; slot < slots; slot++) {
+			int peasantID = encoding.getPeasantID(slot);
+			atTownHall[slot] = new AtTownHall(peasantID);
+			for(ResourceType resource : resources) {
+				atResource[slot][resource.ordinal()] = new AtResource(peasantID, resource);
+				carrying[slot][resource.ordinal()] = new Has(peasantID, resource, encoding.getCargoAmount());
+			}
+		}
+		containsPeasants = new ContainsPeasants[PackedState.MAX_PEASANTS + 1];
+		for(int i = 0; i < containsPeasants.length; i++) {
+			containsPeasants[i] = new ContainsPeasants(i);
+		}
+	}
+
+	public AtTownHall atTownHall(int peasantID) {
+		return atTownHall[encoding.slotOf(peasantID)];
+	}
+
+	public AtResource atResource(int peasantID, ResourceType resource) {
+		return atResource[encoding.slotOf(peasantID)][resource.ordinal()];
+	}
+
+	/**
+	 * 
+	 * @return The literal for the peasant holding one gather's worth of the resource
+	 */
+	public Has carrying(int peasantID, ResourceType resource) {
+		return carrying[encoding.slotOf(peasantID)][resource.ordinal()];
+	}
+
+	public ContainsPeasants containsPeasants(int numPeasants) {
+		return containsPeasants[numPeasants];
+	}
+
+	/**
+	 * 
+	 * @return The literal for the townhall holding the amount of the resource
+	 */
+	public Has townhallHas(ResourceType resource, int amount) {
+		ConcurrentHashMap<Integer, Has> cache = resource.equals(ResourceType.GOLD) ? townhallGold : townhallWood;
+		Has has = cache.get(amount);
+		if(has == null) {
+			has = new Has(encoding.getTownhallID(), resource, amount);
+			Has raced = cache.putIfAbsent(amount, has);
+			if(raced != null) {
+				has = raced;
+			}
+		}
+		return has;
+	}
+
+	public PackedState getEncoding() {
+		return encoding;
+	}
+
+	/**
+	 * Lists the literals that hold in a packed state, using the canonical instances.
+	 */
+	public ArrayList<Literal> decode(long state) {
+		ArrayList<Literal> lits = new ArrayList<Literal>();
+		lits.add(containsPeasants[PackedState.peasants(state)]);
+		lits.add(townhallHas(ResourceType.GOLD, PackedState.gold(state)));
+		lits.add(townhallHas(ResourceType.WOOD, PackedState.wood(state)));
+		for(int slot = 0; slot < atTownHall.length; slot++) {
+			switch(PackedState.location(state, slot)) {
+			case PackedState.TOWNHALL:
+				lits.add(atTownHall[slot]);
+				break;
+			case PackedState.GOLD_MINE:
+				lits.add(atResource[slot][ResourceType.GOLD.ordinal()]);
+				break;
+			case PackedState.FOREST:
+				lits.add(atResource[slot][ResourceType.WOOD.ordinal()]);
+				break;
+			}
+			switch(PackedState.cargo(state, slot)) {
+			case PackedState.GOLD:
+				lits.add(carrying[slot][ResourceType.GOLD.ordinal()]);
+				break;
+			case PackedState.WOOD:
+				lits.add(carrying[slot][ResourceType.WOOD.ordinal()]);
+				break;
+			}
+		}
+		return lits;
+	}
+}
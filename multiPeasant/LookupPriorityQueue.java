@@ -1,16 +1,158 @@
-import java.util.PriorityQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
 
-public class LookupPriorityQueue<E> extends PriorityQueue<E> {
+/**
+ * Binary min-heap that also indexes its elements by equality, so a queued
+ * element equal to a given one can be found in O(1) and moved up in O(log n).
+ * Elements must implement hashCode consistently with equals. They are ordered
+ * naturally unless a comparator is given.
+ */
+public class LookupPriorityQueue<E extends Comparable<? super E>> implements OpenList<E> {
 
-	private static final long serialVersionUID = 1L;
+	private ArrayList<E> heap = new ArrayList<E>();
+	private HashMap<E, Integer> index = new HashMap<E, Integer>();
+	private Comparator<? super E> comparator;
 
-	@SuppressWarnings("unchecked")
-	public E get(E n) {
-		for(Object node : this) {
-			if(((E) node).equals(n)) {
-				return (E)node;
+	public LookupPriorityQueue() {
+	}
+
+	/**
+	 *
+	 * @param comparator - The order of the queue
+	 */
+	public LookupPriorityQueue(Comparator<? super E> comparator) {
+		this.comparator = comparator;
+	}
+
+	/**
+	 *
+	 * @param e - The element to queue
+	 * @return False if an equal element is already queued
+	 */
+	public boolean add(E e) {
+		if(index.containsKey(e)) {
+			return false;
+		}
+		heap.add(e);
+		index.put(e, heap.size() - 1);
+		siftUp(heap.size() - 1);
+		return true;
+	}
+
+	public E poll() {
+		if(heap.isEmpty()) {
+			return null;
+		}
+		E top = heap.get(0);
+		E last = heap.remove(heap.size() - 1);
+		index.remove(top);
+		if(!heap.isEmpty()) {
+			heap.set(0, last);
+			index.put(last, 0);
+			siftDown(0);
+		}
+		return top;
+	}
+
+	public E peek() {
+		if(heap.isEmpty()) {
+			return null;
+		}
+		return heap.get(0);
+	}
+
+	public E get(E e) {
+		Integer i = index.get(e);
+		if(i == null) {
+			return null;
+		}
+		return heap.get(i);
+	}
+
+	public boolean contains(E e) {
+		return index.containsKey(e);
+	}
+
+	/**
+	 * Replaces the queued element equal to e with e and restores the heap order.
+	 * The caller must only use this when e orders before the element it replaces.
+	 *
+	 * @param e - The element with the lowered key
+	 * @return False if no equal element is queued
+	 */
+	public boolean decreaseKey(E e) {
+		Integer i = index.remove(e);
+		if(i == null) {
+			return false;
+		}
+		heap.set(i, e);
+		index.put(e, i);
+		siftUp(i);
+		return true;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return Collections.unmodifiableList(heap).iterator();
+	}
+
+	public int size() {
+		return heap.size();
+	}
+
+	public boolean isEmpty() {
+		return heap.isEmpty();
+	}
+
+	public void clear() {
+		heap.clear();
+		index.clear();
+	}
+
+	private int compare(E a, E b) {
+		if(comparator == null) {
+			return a.compareTo(b);
+		}
+		return comparator.compare(a, b);
+	}
+
+	private void siftUp(int i) {
+		E e = heap.get(i);
+		while(i > 0) {
+			int parent = (i - 1) / 2;
+			E p = heap.get(parent);
+			if(compare(e, p) >= 0) {
+				break;
+			}
+			heap.set(i, p);
+			index.put(p, i);
+			i = parent;
+		}
+		heap.set(i, e);
+		index.put(e, i);
+	}
+
+	private void siftDown(int i) {
+		E e = heap.get(i);
+		int half = heap.size() / 2;
+		while(i < half) {
+			int child = 2 * i + 1;
+			int right = child + 1;
+			if(right < heap.size() && compare(heap.get(right), heap.get(child)) < 0) {
+				child = right;
+			}
+			E c = heap.get(child);
+			if(compare(e, c) <= 0) {
+				break;
 			}
+			heap.set(i, c);
+			index.put(c, i);
+			i = child;
 		}
-		return null;
+		heap.set(i, e);
+		index.put(e, i);
 	}
 }
@@ -0,0 +1,108 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import edu.cwru.sepia.environment.model.state.ResourceType;
+
+/**
+ * A fixed sequence of acts applied as one search step. Its cost is the number
+ * of acts, and the plan is expanded back into them before it is executed.
+ */
+public class Macro extends Act {
+
+	private List<Act> steps;
+
+	/**
+	 * 
+	 * @param steps - The acts, in order
+	 */
+	public Macro(List<Act> steps) {
+		super(Kind.MACRO);
+		this.steps = Collections.unmodifiableList(new ArrayList<Act>(steps));
+	}
+
+	/**
+	 * A full trip of a peasant group: out to the resource, gather, back and
+	 * deposit. The group moves together through the 2- or 3-peasant acts.
+	 * 
+	 * @param peasantIDs - The IDs of the group, one to three peasants
+	 * @param resource - The resource to fetch
+	 * @param amount - The amount one peasant carries
+	 */
+	public static Macro roundTrip(int[] peasantIDs, ResourceType resource, int amount) {
+		List<Act> steps = new ArrayList<Act>();
+		int total = amount * peasantIDs.length;
+		if(peasantIDs.length == 1) {
+			steps.add(new GotoResource(peasantIDs[0], resource));
+			steps.add(new Gather(peasantIDs[0], resource, total));
+			steps.add(new GotoTownHall(peasantIDs[0]));
+			steps.add(new Deposit(peasantIDs[0], resource, total));
+		} else if(peasantIDs.length == 2) {
+			steps.add(new GotoResource2(peasantIDs[0], peasantIDs[1], resource));
+			steps.add(new Gather2(peasantIDs[0], peasantIDs[1], resource, total));
+			steps.add(new GotoTownHall2(peasantIDs[0], peasantIDs[1]));
+			steps.add(new Deposit2(peasantIDs[0], peasantIDs[1], resource, total));
+		} else if(peasantIDs.length == 3) {
+			steps.add(new GotoResource3(peasantIDs[0], peasantIDs[1], peasantIDs[2], resource));
+			steps.add(new Gather3(peasantIDs[0], peasantIDs[1], peasantIDs[2], resource, total));
+			steps.add(new GotoTownHall3(peasantIDs[0], peasantIDs[1], peasantIDs[2]));
+			steps.add(new Deposit3(peasantIDs[0], peasantIDs[1], peasantIDs[2], resource, total));
+		} else {
+			throw new IllegalArgumentException("No round trip for " + peasantIDs.length + " peasants");
+		}
+		return new Macro(steps);
+	}
+
+	public List<Act> getSteps() {
+		return steps;
+	}
+
+	public int length() {
+		return steps.size();
+	}
+
+	@Override
+	public long apply(long state, PackedState encoding) {
+		for(Act step : steps) {
+			state = step.apply(state, encoding);
+		}
+		return state;
+	}
+	
+	@Override
+	public long writes(long state, PackedState encoding) {
+		long written = 0;
+		for(Act step : steps) {
+			written |= step.writes(state, encoding);
+			state = step.apply(state, encoding);
+		}
+		return written;
+	}
+
+	/**
+	 * Rebuilds a plan with every macro replaced by its acts, one node per act.
+	 * 
+	 * @param goal - The last node of the plan
+	 * @return The last node of the expanded plan, or goal if it has no macros
+	 */
+	public static Node expandPlan(Node goal) {
+		LinkedList<Act> acts = new LinkedList<Act>();
+		boolean hasMacro = false;
+		Node node = goal;
+		for(; node.getParentNode() != null; node = node.getParentNode()) {
+			acts.addFirst(node.getToState());
+			hasMacro |= node.getToState().getKind() == Kind.MACRO;
+		}
+		if(!hasMacro) {
+			return goal;
+		}
+		for(Act act : acts) {
+			List<Act> steps = act.getKind() == Kind.MACRO ? ((Macro)act).getSteps() : Collections.singletonList(act);
+			for(Act step : steps) {
+				node = new Node(node, step, node.getCostToNode() + 1, 0);
+			}
+		}
+		return node;
+	}
+}
@@ -27,10 +27,14 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -47,7 +51,7 @@ import edu.cwru.sepia.environment.model.state.State.StateView;
 import edu.cwru.sepia.environment.model.state.Template.TemplateView;
 import edu.cwru.sepia.environment.model.state.Unit.UnitView;
 
-public class MultiPeasant extends Agent {
+public class MultiPeasant extends Agent implements SearchProblem {
 	private static final long serialVersionUID = -4047208702628325380L;
 	private static final Logger logger = Logger.getLogger(MultiPeasant.class.getCanonicalName());
 	public static final int GATHER_AMOUNT = 100;
@@ -60,14 +64,37 @@ public class MultiPeasant extends Agent {
 	private List<Integer> peasantIds = new ArrayList<Integer>();
 	private List<Integer> townhallIds = new ArrayList<Integer>();
 	
-	private LookupPriorityQueue<Node> open = new LookupPriorityQueue<Node>();
-	private List<Node> closed = new ArrayList<Node>();
+	private OpenList<Node> open;
+	private Set<Node> closed = new HashSet<Node>();
+	private TieBreak tieBreak;
+	private SearchStats stats = new SearchStats();
+	private String searchMode;
+	private int threads;
+	private int batchSize;
+	private boolean forkJoin;
+	private boolean macros;
+	private boolean numeric;
+	private boolean pruneDominated;
+	private DominanceIndex dominance; //null unless pruning dominated states
+	private String heuristicMode;
+	private Heuristic estimator; //null for the built-in estimate
+	private List<GroundAct> ops; //for the built-in estimate's dead-end test
+	private boolean lazy; //successors wait with their parent's h until popped
+	private int boost;
+	private AtomicLong evaluations = new AtomicLong();
+	private Macro[] goldTrips; //round trips, by number of peasants
+	private Macro[] woodTrips;
+	private PlannerOptions options;
 	private LinkedList<Node> solution = new LinkedList<Node>();
 	
 	private ArrayList<Literal> initLits = new ArrayList<Literal>();
 	private ArrayList<Literal> goalLits = new ArrayList<Literal>();
 	
 	private StateView currentState;
+	private PackedState encoding;
+	private LiteralTable interned;
+	private long goalState;
+	private long goalMask;
 	
 	private int nextGoalID = 0;
 	private int targetGold;
@@ -86,6 +113,25 @@ public class MultiPeasant extends Agent {
 		} else {
 			targetWood = 200;
 		}
+		options = new PlannerOptions(arguments, 2);
+		tieBreak = TieBreak.fromOptions(options);
+		searchMode = options.choice("search", "astar", "astar", "hda", "ara", "ida", "ehc", "beam");
+		threads = options.getInt("threads", Runtime.getRuntime().availableProcessors());
+		forkJoin = options.choice("expand", "serial", "serial", "forkjoin").equals("forkjoin");
+		batchSize = Math.max(1, options.getInt("batch", forkJoin ? threads : 1));
+		//with its table full, IDA* cannot tell a macro from its steps taken one by one
+		macros = options.getBoolean("macros", true) && !searchMode.equals("ida");
+		numeric = options.getBoolean("numeric", true);
+		pruneDominated = options.getBoolean("dominance", false);
+		heuristicMode = options.choice("heuristic", "default", "default", "hadd", "hff", "hmax", "pdb", "landmark");
+		//only the A* loop evaluates deferred nodes
+		lazy = options.choice("eval", "eager", "eager", "lazy").equals("lazy") && searchMode.equals("astar");
+		boost = options.getInt("boost", 1);
+		if(options.choice("queue", "heap", "heap", "bucket").equals("bucket")) {
+			open = new BucketPriorityQueue(tieBreak);
+		} else {
+			open = new LookupPriorityQueue<Node>(tieBreak);
+		}
 		goalPeasants = 2;
 	}
 
@@ -111,890 +157,605 @@ public class MultiPeasant extends Agent {
 			}
 		}
 		
+		encoding = new PackedState(townhallIds.get(0), new int[] {3, 1, 2}, GATHER_AMOUNT);
+		interned = new LiteralTable(encoding);
+		
 		//initial state
-		initLits.add(new ContainsPeasants(1));
+		initLits.add(interned.containsPeasants(1));
 		initLits.add(new Has(townhallIds.get(0), ResourceType.GOLD, 0)); //town has no gold
 		initLits.add(new Has(townhallIds.get(0), ResourceType.WOOD, 0)); //town has no wood
-		initLits.add(new AtTownHall(3)); //peasant starts at the townhall
+		initLits.add(interned.atTownHall(3)); //peasant starts at the townhall
 
 		//goal state
 		goalLits.add(new Has(townhallIds.get(0), ResourceType.GOLD, targetGold));
 		goalLits.add(new Has(townhallIds.get(0), ResourceType.WOOD, targetWood));
-		goalLits.add(new ContainsPeasants(goalPeasants));
+		goalLits.add(interned.containsPeasants(goalPeasants));
 		
-		Node root = new Node(null, null, initLits, 0, 0);
+		goalState = encoding.encode(goalLits);
+		goalMask = encoding.mask(goalLits);
+		if(pruneDominated) {
+			dominance = new DominanceIndex(encoding, goalPeasants, targetGold, targetWood);
+		}
+		if(heuristicMode.equals("pdb")) {
+			estimator = PatternDatabase.load(encoding, RelaxedPlanHeuristic.groupActs(encoding, PEASANT_COST),
+					goalState, goalMask, new File(options.get("pdbdir", "pdb")), options.getLong("pdbmax", 50000000));
+		} else if(heuristicMode.equals("landmark")) {
+			estimator = new LandmarkHeuristic(encoding, RelaxedPlanHeuristic.groupActs(encoding, PEASANT_COST),
+					encoding.encode(initLits), goalState, goalMask);
+		} else if(!heuristicMode.equals("default")) {
+			estimator = new RelaxedPlanHeuristic(encoding, RelaxedPlanHeuristic.groupActs(encoding, PEASANT_COST),
+					goalState, goalMask, RelaxedPlanHeuristic.Mode.valueOf(heuristicMode.toUpperCase()));
+		} else {
+			ops = GroundAct.ground(encoding, RelaxedPlanHeuristic.groupActs(encoding, PEASANT_COST));
+		}
+		
+		Node root = new Node(initLits, interned, 0);
 
 		int estimatedCost = heuristic(root);
 		root.setCostToGoal(estimatedCost);
 		
-		open.add(root);
+		int[] group = new int[encoding.getSlotCount()];
+		for(int i = 0; i < group.length; i++) {
+			group[i] = encoding.getPeasantID(i);
+		}
+		goldTrips = new Macro[group.length + 1];
+		woodTrips = new Macro[group.length + 1];
+		for(int count = 1; count <= group.length; count++) {
+			goldTrips[count] = Macro.roundTrip(Arrays.copyOf(group, count), ResourceType.GOLD, GATHER_AMOUNT);
+			woodTrips[count] = Macro.roundTrip(Arrays.copyOf(group, count), ResourceType.WOOD, GATHER_AMOUNT);
+		}
 		
-		while(true) {
-			Node node = open.poll();
-			
-			if(node == null) {
-				terminalStep(newState, stateHistory);
-				break;
+		Node goal = null;
+		if(numeric) {
+			goal = new NumericPlanner(encoding, PEASANT_COST).plan(root, goalState, goalMask);
+			if(logger.isLoggable(Level.FINE)) {
+				logger.fine(goal == null ? "No numeric plan, searching" : "Numeric plan of " + goal.getCostToNode() + " acts");
 			}
-			
-			//Goal found
-			boolean goalPassed = true;
-			for(Literal goalLiteral : goalLits) { 				
-				if(!node.containsLit(goalLiteral)) {
-					goalPassed = false;
-					break;
+		}
+		if(goal == null && root.getCostToGoal() < GroundAct.INFINITE) { //no plan from a dead end
+			try {
+				if(searchMode.equals("hda")) {
+					goal = new HashDistributedSearch(this, tieBreak, threads).search(root);
+				} else if(searchMode.equals("ara")) {
+					goal = new AnytimeSearch(this, tieBreak, options.getDouble("weight", 5),
+							options.getDouble("weightstep", 1), options.getLong("budget", 1000)).search(root);
+				} else if(searchMode.equals("ida")) {
+					goal = new IterativeDeepeningSearch(this, tieBreak, options.getInt("maxnodes", 1000000)).search(root);
+				} else if(searchMode.equals("beam")) {
+					goal = new BeamSearch(this, tieBreak, options.getInt("width", 100), options.getInt("maxdepth", 10000)).search(root);
+				} else if(searchMode.equals("ehc") && estimator != null) { //the built-in formula keeps falling past the goal
+					goal = new EnforcedHillClimbing(this, options.getBoolean("helpful", true)).search(root);
+					if(goal == null) { //dead end, fall back to complete search
+						goal = search(root);
+					}
+				} else {
+					goal = search(root);
 				}
-			}
-			if(goalPassed) {				
-				while(node.getParentNode() != null) {
-					solution.addFirst(node);
-					node = node.getParentNode();
+			} catch(IllegalArgumentException e) { //stock grew past what the state can hold
+				if(logger.isLoggable(Level.FINE)) {
+					logger.fine("No plan: " + e.getMessage());
 				}
-				printPlan();
-				break;
+				goal = null;
 			}
-			
-			closed.add(node);
-			
-			//determine resources still needed
-			boolean needGold = false;
-			boolean needWood = false;
-			boolean needPeasant = false;
-			int neededGold = 0; //according to the townhall
-			int neededWood = 0;
-			for(Literal literal : node.getStateLits()) {
-				if(literal.getClass().toString().equals("class ContainsPeasants") 
-						&& ((ContainsPeasants)literal).getNumPeasants() < goalPeasants) {
-					needPeasant = true;
-				}
-				if(literal.getClass().toString().equals("class Has")
-						&& ((Has)literal).getObjectID() == townhallIds.get(0)) {
-					if(((Has)literal).getResource().equals(ResourceType.GOLD)) {
-						neededGold = ((Has)literal).getAmount();
-						if(neededGold < targetGold) {
-							needGold = true;
-						}
-					} else if(((Has)literal).getResource().equals(ResourceType.WOOD)) {
-						neededWood = ((Has)literal).getAmount();
-						if(neededWood < targetWood) {
-							needWood = true;
-						}
-					}
-				}
+		}
+		
+		if(goal != null) {
+			goal = Macro.expandPlan(goal);
+		}
+		
+		if(goal == null) {
+			terminalStep(newState, stateHistory);
+		} else {
+			while(goal.getParentNode() != null) {
+				solution.addFirst(goal);
+				goal = goal.getParentNode();
 			}
-			
-			if(node.containsLit(new ContainsPeasants(1))) { //only one peasant		
-				//GotoResource
-				if(node.containsLit(new AtTownHall(3))
-						&& !node.containsLit(new Has(3, ResourceType.GOLD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(3, ResourceType.WOOD, GATHER_AMOUNT))) { //preconditions
-					if(needGold || needPeasant) {
-						ArrayList<Literal> literalsGold = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							if(!lit.equals(new AtTownHall(3))) { //remove list
-								literalsGold.add(lit);
-							}
-						}
-						literalsGold.add(new AtResource(3, ResourceType.GOLD)); //add list
-						
-						
-						Node n = new Node(node, new GotoResource(3, ResourceType.GOLD),
-								literalsGold, node.getCostToNode() + 1, 0);
-						
-						estimatedCost = heuristic(n);
-						
-						n.setCostToGoal(estimatedCost);
-
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
+			printPlan();
+		}
+		return middleStep(newState, stateHistory);
+	}
+	
+	/**
+	 * A* that pops up to batchSize nodes at a time and expands them together,
+	 * on a ForkJoinPool if forkJoin is set. Successors are queued in the order
+	 * their parents were popped.
+	 * 
+	 * In lazy mode a popped node that still has its parent's h is evaluated
+	 * first. If its own h is higher, it goes back in the queue.
+	 * 
+	 * @param root - The initial node
+	 * @return The first goal node popped, or null if there is none
+	 */
+	private Node search(Node root) {
+		BatchExpander expander = new BatchExpander(this, forkJoin ? threads : 1);
+		ArrayList<Node> batch = new ArrayList<Node>(batchSize);
+		root.setOrder(stats.generated());
+		open.add(root);
+		
+		try {
+			while(true) {
+				batch.clear();
+				while(batch.size() < batchSize) {
+					Node node = open.poll();
+					
+					if(node == null) {
+						break;
+					}
+					
+					//Goal found
+					if(isGoal(node)) {
+						stats.countPlateau(open, node);
+						if(logger.isLoggable(Level.FINE)) {
+							logger.fine("Search (" + tieBreak + ", batch " + batchSize + (lazy ? ", lazy" : "") + "): " + stats
+									+ ", heuristic calls " + evaluations.get()
+									+ (dominance == null ? "" : ", dominated " + dominance.getPruned())
+									+ (estimator == null ? "" : ", heuristic " + estimator));
 						}
+						return node;
 					}
-					if(needWood) {
-						ArrayList<Literal> literalsWood = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							if(!lit.equals(new AtTownHall(3))) { //remove list
-								literalsWood.add(lit);
-							}
+					
+					if(node.isDeferred()) {
+						int queued = node.getCostToGoal();
+						node.setDeferred(false);
+						node.setCostToGoal(evaluate(node));
+						if(node.getCostToGoal() >= GroundAct.INFINITE) {
+							continue; //a dead end
 						}
-						literalsWood.add(new AtResource(3, ResourceType.WOOD)); //add list
-						
-						Node n = new Node(node, new GotoResource(3, ResourceType.WOOD),
-								literalsWood, node.getCostToNode() + 1, 0);
-						
-						estimatedCost = heuristic(n);
-						
-						n.setCostToGoal(estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
+						if(node.getCostToGoal() != queued) {
+							open.add(node);
+							continue;
 						}
 					}
+					
+					closed.add(node);
+					if(dominance != null) {
+						dominance.add(node);
+					}
+					stats.expanded();
+					batch.add(node);
 				}
 				
-				//GotoTownHall
-				if((node.containsLit(new AtResource(3, ResourceType.GOLD))
-						|| node.containsLit(new AtResource(3, ResourceType.WOOD)))
-						&& (node.containsLit(new Has(3, ResourceType.GOLD, GATHER_AMOUNT))
-								|| node.containsLit(new Has(3, ResourceType.WOOD, GATHER_AMOUNT)))) { //preconditions
-					ArrayList<Literal> literals = new ArrayList<Literal>();
-					for(Literal lit : node.getStateLits()) {
-						if(!lit.equals(new AtResource(3, ResourceType.GOLD))
-								&& !lit.equals(new AtResource(3, ResourceType.WOOD))) { //remove list
-							literals.add(lit);
-						}
+				if(batch.isEmpty()) {
+					return null;
+				}
+				
+				for(List<Node> successors : expander.expand(batch)) {
+					for(Node n : successors) {
+						addToOpen(n);
 					}
+				}
+			}
+		} finally {
+			expander.shutdown();
+		}
+	}
+	
+	/**
+	 * Queues the successor of a round trip macro.
+	 */
+	private void addRoundTrip(Node node, Macro macro, List<Node> successors) {
+		Node n = new Node(node, macro, node.getCostToNode() + macro.length(), 0);
+		n.setCostToGoal(heuristic(n));
+		successors.add(n);
+	}
+	
+	@Override
+	public boolean isGoal(Node node) {
+		return (node.getState() & goalMask) == goalState;
+	}
+	
+	@Override
+	public void expand(Node node, List<Node> successors) {
+		int estimatedCost;
+		
+		//determine resources still needed
+		long state = node.getState();
+		int neededGold = PackedState.gold(state); //according to the townhall
+		int neededWood = PackedState.wood(state);
+		boolean needGold = neededGold < targetGold;
+		boolean needWood = neededWood < targetWood;
+		boolean needPeasant = PackedState.peasants(state) < goalPeasants;
+		
+		if(PackedState.peasants(state) == 1) { //only one peasant		
+			//GotoResource
+			if(node.containsLit(interned.atTownHall(3))
+					&& !node.containsLit(interned.carrying(3, ResourceType.GOLD))
+					&& !node.containsLit(interned.carrying(3, ResourceType.WOOD))) { //preconditions
+				if(needGold || needPeasant) {
+					Node n = new Node(node, new GotoResource(3, ResourceType.GOLD),
+							node.getCostToNode() + 1, 0);
 					
-					literals.add(new AtTownHall(3));
+					estimatedCost = heuristic(n);
 					
+					n.setCostToGoal(estimatedCost);
+
+					successors.add(n);
 					
-					Node n = new Node(node, new GotoTownHall(3),
-							literals, node.getCostToNode() + 1, 0);
+					if(macros) {
+						addRoundTrip(node, goldTrips[1], successors);
+					}
+				}
+				if(needWood) {
+					Node n = new Node(node, new GotoResource(3, ResourceType.WOOD),
+							node.getCostToNode() + 1, 0);
 					
 					estimatedCost = heuristic(n);
 					
 					n.setCostToGoal(estimatedCost);
 					
-					if(!closed.contains(n)) {
-						open.add(n);
-					} else if (open.contains(n)){
-						Node toCompare = open.get(n);
-						if(toCompare.getCostToNode() > n.getCostToNode()) {
-							toCompare.setCostToNode(n.getCostToNode());
-							toCompare.setParentNode(n.getParentNode());
-						}
+					successors.add(n);
+					
+					if(macros) {
+						addRoundTrip(node, woodTrips[1], successors);
 					}
 				}
+			}
+			
+			//GotoTownHall
+			if((node.containsLit(interned.atResource(3, ResourceType.GOLD))
+					|| node.containsLit(interned.atResource(3, ResourceType.WOOD)))
+					&& (node.containsLit(interned.carrying(3, ResourceType.GOLD))
+							|| node.containsLit(interned.carrying(3, ResourceType.WOOD)))) { //preconditions
+				Node n = new Node(node, new GotoTownHall(3),
+						node.getCostToNode() + 1, 0);
 				
-				//Deposit
-				if(node.containsLit(new AtTownHall(3))) {
-					if(node.containsLit(new Has(3, ResourceType.GOLD, GATHER_AMOUNT))) { //preconditions
-						ArrayList<Literal> literalsGold = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							if(!lit.equals(new Has(3, ResourceType.GOLD, GATHER_AMOUNT))) { //remove list
-								if(lit.getClass().toString().equals("class Has")
-										&& ((Has)lit).getObjectID() == townhallIds.get(0)
-										&& ((Has)lit).getResource().equals(ResourceType.GOLD)) {
-									literalsGold.add(new Has(townhallIds.get(0), ResourceType.GOLD, ((Has)lit).getAmount() + GATHER_AMOUNT));
-								} else {
-									literalsGold.add(lit);
-								}
-							}
-						}
-						
-						Node n = new Node(node, new Deposit(3, ResourceType.GOLD, GATHER_AMOUNT),
-								literalsGold, node.getCostToNode() + 1, 0);
-						
-						estimatedCost = heuristic(n);
-						
-						n.setCostToGoal(estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
-					}
-					if(node.containsLit(new Has(3, ResourceType.WOOD, GATHER_AMOUNT))) { //preconditions
-						ArrayList<Literal> literalsWood = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							if(!lit.equals(new Has(3, ResourceType.WOOD, GATHER_AMOUNT))) { //remove list
-								if(lit.getClass().toString().equals("class Has")
-										&& ((Has)lit).getObjectID() == townhallIds.get(0)
-										&& ((Has)lit).getResource().equals(ResourceType.WOOD)) {
-									literalsWood.add(new Has(townhallIds.get(0), ResourceType.WOOD, ((Has)lit).getAmount() + GATHER_AMOUNT));
-								} else {
-									literalsWood.add(lit);
-								}
-							}
-						}
-						
-						Node n = new Node(node, new Deposit(3, ResourceType.WOOD, GATHER_AMOUNT),
-								literalsWood, node.getCostToNode() + 1, 0);
-						
-						estimatedCost = heuristic(n);
-						
-						n.setCostToGoal(estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
-					}
-				}
+				estimatedCost = heuristic(n);
 				
-				//Gather
-				if(!node.containsLit(new Has(3, ResourceType.GOLD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(3, ResourceType.WOOD, GATHER_AMOUNT))) {
-					if(node.containsLit(new AtResource(3, ResourceType.GOLD))) { //preconditions
-						ArrayList<Literal> literalsGold = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							literalsGold.add(lit);
-						}
-						
-						literalsGold.add(new Has(3, ResourceType.GOLD, GATHER_AMOUNT)); //add list
-						
-						Node n = new Node(node, new Gather(3, ResourceType.GOLD, GATHER_AMOUNT),
-								literalsGold, node.getCostToNode() + 1, 0);
-						
-						estimatedCost = heuristic(n);
-						
-						n.setCostToGoal(estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
-					}
-					if(node.containsLit(new AtResource(3, ResourceType.WOOD))) { //preconditions
-						ArrayList<Literal> literalsWood = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							literalsWood.add(lit);
-						}
-						
-						literalsWood.add(new Has(3, ResourceType.WOOD, GATHER_AMOUNT)); //add list
-						
-						Node n = new Node(node, new Gather(3, ResourceType.WOOD, GATHER_AMOUNT),
-								literalsWood, node.getCostToNode() + 1, 0);
-						
-						estimatedCost = heuristic(n);
-						
-						n.setCostToGoal(estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
-					}
-				}
+				n.setCostToGoal(estimatedCost);
 				
-				//BuildPeasant
-				boolean enoughGold = false;
-				for(Literal lit : node.getStateLits()) {
-					if(lit.getClass().toString().equals("class Has")
-							&& ((Has)lit).getObjectID() == townhallIds.get(0)
-							&& ((Has)lit).getResource().equals(ResourceType.GOLD)) {
-						if(((Has)lit).getAmount() >= PEASANT_COST) {
-							enoughGold = true;
-							break;
-						}
-					}
+				successors.add(n);
+			}
+			
+			//Deposit
+			if(node.containsLit(interned.atTownHall(3))) {
+				if(node.containsLit(interned.carrying(3, ResourceType.GOLD))) { //preconditions
+					Node n = new Node(node, new Deposit(3, ResourceType.GOLD, GATHER_AMOUNT),
+							node.getCostToNode() + 1, 0);
+					
+					estimatedCost = heuristic(n);
+					
+					n.setCostToGoal(estimatedCost);
+					
+					successors.add(n);
 				}
-				
-				if(enoughGold) { //preconditions
-					ArrayList<Literal> literalsBuild = new ArrayList<Literal>();
-					for(Literal lit : node.getStateLits()) {
-						if(!lit.equals(new ContainsPeasants(1))) { //remove list
-							if(lit.getClass().toString().equals("class Has")
-									&& ((Has)lit).getObjectID() == townhallIds.get(0)
-									&& ((Has)lit).getResource().equals(ResourceType.GOLD)) {
-								literalsBuild.add(new Has(townhallIds.get(0), ResourceType.GOLD, ((Has)lit).getAmount() - PEASANT_COST));
-							} else {
-								literalsBuild.add(lit);
-							}
-						} else {
-							literalsBuild.add(0, new ContainsPeasants(2)); //add list
-						}
-					}
+				if(node.containsLit(interned.carrying(3, ResourceType.WOOD))) { //preconditions
+					Node n = new Node(node, new Deposit(3, ResourceType.WOOD, GATHER_AMOUNT),
+							node.getCostToNode() + 1, 0);
+					
+					estimatedCost = heuristic(n);
 					
-					literalsBuild.add(new AtTownHall(1));
+					n.setCostToGoal(estimatedCost);
 					
-					Node n = new Node(node, new BuildPeasant(), literalsBuild, node.getCostToNode() + 1, 0);
+					successors.add(n);
+				}
+			}
+			
+			//Gather
+			if(!node.containsLit(interned.carrying(3, ResourceType.GOLD))
+					&& !node.containsLit(interned.carrying(3, ResourceType.WOOD))) {
+				if(node.containsLit(interned.atResource(3, ResourceType.GOLD))) { //preconditions
+					Node n = new Node(node, new Gather(3, ResourceType.GOLD, GATHER_AMOUNT),
+							node.getCostToNode() + 1, 0);
 					
 					estimatedCost = heuristic(n);
 					
 					n.setCostToGoal(estimatedCost);
 					
-					if(!closed.contains(n)) {
-						open.add(n);
-					} else if (open.contains(n)){
-						Node toCompare = open.get(n);
-						if(toCompare.getCostToNode() > n.getCostToNode()) {
-							toCompare.setCostToNode(n.getCostToNode());
-							toCompare.setParentNode(n.getParentNode());
-						}
-					}
+					successors.add(n);
 				}
-			} else if(node.containsLit(new ContainsPeasants(2))) { //two peasants
-				//GotoResource2
-				if(node.containsLit(new AtTownHall(3))
-						&& node.containsLit(new AtTownHall(1))
-						&& !node.containsLit(new Has(3, ResourceType.GOLD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(1, ResourceType.GOLD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(3, ResourceType.WOOD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(1, ResourceType.WOOD, GATHER_AMOUNT))) { //preconditions
-					if(needGold || needPeasant) {
-						ArrayList<Literal> literalsGold = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							if(!lit.equals(new AtTownHall(3))
-									&& !lit.equals(new AtTownHall(1))) { //remove list
-								literalsGold.add(lit);
-							}
-						}
-						literalsGold.add(new AtResource(3, ResourceType.GOLD)); //add list
-						literalsGold.add(new AtResource(1, ResourceType.GOLD));
-						
-						Node n = new Node(node, new GotoResource2(3, 1, ResourceType.GOLD),
-								literalsGold, node.getCostToNode() + 1, 0);
-						
-						estimatedCost = heuristic(n);
-						
-						n.setCostToGoal(estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
-					}
-					if(needWood) {
-						ArrayList<Literal> literalsWood = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							if(!lit.equals(new AtTownHall(3))
-									&& !lit.equals(new AtTownHall(1))) { //remove list
-								literalsWood.add(lit);
-							}
-						}
-						literalsWood.add(new AtResource(3, ResourceType.WOOD)); //add list
-						literalsWood.add(new AtResource(1, ResourceType.WOOD));
-						
-						Node n = new Node(node, new GotoResource2(3, 1, ResourceType.WOOD),
-								literalsWood, node.getCostToNode() + 1, 0);
-						
-						estimatedCost = heuristic(n);
-						
-						n.setCostToGoal(estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
-					}
+				if(node.containsLit(interned.atResource(3, ResourceType.WOOD))) { //preconditions
+					Node n = new Node(node, new Gather(3, ResourceType.WOOD, GATHER_AMOUNT),
+							node.getCostToNode() + 1, 0);
+					
+					estimatedCost = heuristic(n);
+					
+					n.setCostToGoal(estimatedCost);
+					
+					successors.add(n);
 				}
+			}
+			
+			//BuildPeasant
+			boolean enoughGold = neededGold >= PEASANT_COST;
+			
+			if(enoughGold) { //preconditions
+				Node n = new Node(node, new BuildPeasant(PEASANT_COST), node.getCostToNode() + 1, 0);
 				
-				//GotoTownHall2
-				if((node.containsLit(new AtResource(3, ResourceType.GOLD))
-							|| node.containsLit(new AtResource(3, ResourceType.WOOD)))
-						&& (node.containsLit(new Has(3, ResourceType.GOLD, GATHER_AMOUNT))
-							|| node.containsLit(new Has(3, ResourceType.WOOD, GATHER_AMOUNT)))
-						&& (node.containsLit(new AtResource(1, ResourceType.GOLD))
-							|| node.containsLit(new AtResource(1, ResourceType.WOOD)))
-						&& (node.containsLit(new Has(1, ResourceType.GOLD, GATHER_AMOUNT))
-							|| node.containsLit(new Has(1, ResourceType.WOOD, GATHER_AMOUNT)))) { //preconditions
-					ArrayList<Literal> literals = new ArrayList<Literal>();
-					for(Literal lit : node.getStateLits()) {
-						if(!lit.equals(new AtResource(3, ResourceType.GOLD))
-								&& !lit.equals(new AtResource(3, ResourceType.WOOD))
-								&& !lit.equals(new AtResource(1, ResourceType.GOLD))
-								&& !lit.equals(new AtResource(1, ResourceType.WOOD))) { //remove list
-							literals.add(lit);
-						}
-					}
+				estimatedCost = heuristic(n);
+				
+				n.setCostToGoal(estimatedCost);
+				
+				successors.add(n);
+			}
+		} else if(PackedState.peasants(state) == 2) { //two peasants
+			//GotoResource2
+			if(node.containsLit(interned.atTownHall(3))
+					&& node.containsLit(interned.atTownHall(1))
+					&& !node.containsLit(interned.carrying(3, ResourceType.GOLD))
+					&& !node.containsLit(interned.carrying(1, ResourceType.GOLD))
+					&& !node.containsLit(interned.carrying(3, ResourceType.WOOD))
+					&& !node.containsLit(interned.carrying(1, ResourceType.WOOD))) { //preconditions
+				if(needGold || needPeasant) {
+					Node n = new Node(node, new GotoResource2(3, 1, ResourceType.GOLD),
+							node.getCostToNode() + 1, 0);
+					
+					estimatedCost = heuristic(n);
+					
+					n.setCostToGoal(estimatedCost);
 					
-					literals.add(new AtTownHall(3)); //add list
-					literals.add(new AtTownHall(1));
+					successors.add(n);
 					
-					Node n = new Node(node, new GotoTownHall2(3, 1),
-							literals, node.getCostToNode() + 1, 0);
+					if(macros) {
+						addRoundTrip(node, goldTrips[2], successors);
+					}
+				}
+				if(needWood) {
+					Node n = new Node(node, new GotoResource2(3, 1, ResourceType.WOOD),
+							node.getCostToNode() + 1, 0);
 					
 					estimatedCost = heuristic(n);
 					
 					n.setCostToGoal(estimatedCost);
 					
-					if(!closed.contains(n)) {
-						open.add(n);
-					} else if (open.contains(n)){
-						Node toCompare = open.get(n);
-						if(toCompare.getCostToNode() > n.getCostToNode()) {
-							toCompare.setCostToNode(n.getCostToNode());
-							toCompare.setParentNode(n.getParentNode());
-						}
+					successors.add(n);
+					
+					if(macros) {
+						addRoundTrip(node, woodTrips[2], successors);
 					}
 				}
+			}
+			
+			//GotoTownHall2
+			if((node.containsLit(interned.atResource(3, ResourceType.GOLD))
+						|| node.containsLit(interned.atResource(3, ResourceType.WOOD)))
+					&& (node.containsLit(interned.carrying(3, ResourceType.GOLD))
+						|| node.containsLit(interned.carrying(3, ResourceType.WOOD)))
+					&& (node.containsLit(interned.atResource(1, ResourceType.GOLD))
+						|| node.containsLit(interned.atResource(1, ResourceType.WOOD)))
+					&& (node.containsLit(interned.carrying(1, ResourceType.GOLD))
+						|| node.containsLit(interned.carrying(1, ResourceType.WOOD)))) { //preconditions
+				Node n = new Node(node, new GotoTownHall2(3, 1),
+						node.getCostToNode() + 1, 0);
 				
-				//Deposit2
-				if(node.containsLit(new AtTownHall(3))
-						&& node.containsLit(new AtTownHall(1))) {
-					if(node.containsLit(new Has(3, ResourceType.GOLD, GATHER_AMOUNT))
-							&& node.containsLit(new Has(1, ResourceType.GOLD, GATHER_AMOUNT))) { //preconditions
-						ArrayList<Literal> literalsGold = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							if(!lit.equals(new Has(3, ResourceType.GOLD, GATHER_AMOUNT))
-									&& !lit.equals(new Has(1, ResourceType.GOLD, GATHER_AMOUNT))) { //remove list
-								if(lit.getClass().toString().equals("class Has")
-										&& ((Has)lit).getObjectID() == townhallIds.get(0)
-										&& ((Has)lit).getResource().equals(ResourceType.GOLD)) {
-									literalsGold.add(new Has(townhallIds.get(0), ResourceType.GOLD, ((Has)lit).getAmount() + 2 * GATHER_AMOUNT));
-								} else {
-									literalsGold.add(lit);
-								}
-							}
-						}
-						
-						Node n = new Node(node, new Deposit2(3, 1, ResourceType.GOLD, 2 * GATHER_AMOUNT),
-								literalsGold, node.getCostToNode() + 1, 0);
-						
-						estimatedCost = heuristic(n);
-						
-						n.setCostToGoal(estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
-					}
-					if(node.containsLit(new Has(3, ResourceType.WOOD, GATHER_AMOUNT))
-							&& node.containsLit(new Has(1, ResourceType.WOOD, GATHER_AMOUNT))) { //preconditions
-						ArrayList<Literal> literalsWood = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							if(!lit.equals(new Has(3, ResourceType.WOOD, GATHER_AMOUNT))
-									&& !lit.equals(new Has(1, ResourceType.WOOD, GATHER_AMOUNT))) { //remove list
-								if(lit.getClass().toString().equals("class Has")
-										&& ((Has)lit).getObjectID() == townhallIds.get(0)
-										&& ((Has)lit).getResource().equals(ResourceType.WOOD)) {
-									literalsWood.add(new Has(townhallIds.get(0), ResourceType.WOOD, ((Has)lit).getAmount() + 2 * GATHER_AMOUNT));
-								} else {
-									literalsWood.add(lit);
-								}
-							}
-						}
-						
-						Node n = new Node(node, new Deposit2(3, 1, ResourceType.WOOD, 2 * GATHER_AMOUNT),
-								literalsWood, node.getCostToNode() + 1, 0);
-						
-						estimatedCost = heuristic(n);
-						
-						n.setCostToGoal(estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
-					}
-				}
+				estimatedCost = heuristic(n);
 				
-				//Gather2
-				if(!node.containsLit(new Has(3, ResourceType.GOLD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(1, ResourceType.GOLD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(3, ResourceType.WOOD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(1, ResourceType.WOOD, GATHER_AMOUNT))) {
-					if(node.containsLit(new AtResource(3, ResourceType.GOLD))
-							&& node.containsLit(new AtResource(1, ResourceType.GOLD))) { //preconditions
-						ArrayList<Literal> literalsGold = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							literalsGold.add(lit);
-						}
-						
-						literalsGold.add(new Has(3, ResourceType.GOLD, GATHER_AMOUNT)); //add list
-						literalsGold.add(new Has(1, ResourceType.GOLD, GATHER_AMOUNT));
-						
-						Node n = new Node(node, new Gather2(3, 1, ResourceType.GOLD, 2 * GATHER_AMOUNT),
-								literalsGold, node.getCostToNode() + 1, 0);
-						
-						estimatedCost = heuristic(n);
-						
-						n.setCostToGoal(estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
-					}
-					if(node.containsLit(new AtResource(3, ResourceType.WOOD))
-							&& node.containsLit(new AtResource(1, ResourceType.WOOD))) { //preconditions
-						ArrayList<Literal> literalsWood = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							literalsWood.add(lit);
-						}
-						
-						literalsWood.add(new Has(3, ResourceType.WOOD, GATHER_AMOUNT)); //add list
-						literalsWood.add(new Has(1, ResourceType.WOOD, GATHER_AMOUNT));
-						
-						Node n = new Node(node, new Gather2(3, 1, ResourceType.WOOD, 2 * GATHER_AMOUNT),
-								literalsWood, node.getCostToNode() + 1, 0);
-						
-						estimatedCost = heuristic(n);
-						
-						n.setCostToGoal(estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
-					}
-				}
+				n.setCostToGoal(estimatedCost);
 				
-				//BuildPeasant2
-				boolean enoughGold = false;
-				for(Literal lit : node.getStateLits()) {
-					if(lit.getClass().toString().equals("class Has")
-							&& ((Has)lit).getObjectID() == townhallIds.get(0)
-							&& ((Has)lit).getResource().equals(ResourceType.GOLD)) {
-						if(((Has)lit).getAmount() >= PEASANT_COST) {
-							enoughGold = true;
-							break;
-						}
-					}
+				successors.add(n);
+			}
+			
+			//Deposit2
+			if(node.containsLit(interned.atTownHall(3))
+					&& node.containsLit(interned.atTownHall(1))) {
+				if(node.containsLit(interned.carrying(3, ResourceType.GOLD))
+						&& node.containsLit(interned.carrying(1, ResourceType.GOLD))) { //preconditions
+					Node n = new Node(node, new Deposit2(3, 1, ResourceType.GOLD, 2 * GATHER_AMOUNT),
+							node.getCostToNode() + 1, 0);
+					
+					estimatedCost = heuristic(n);
+					
+					n.setCostToGoal(estimatedCost);
+					
+					successors.add(n);
 				}
-				
-				if(enoughGold) { //preconditions
-					ArrayList<Literal> literalsBuild = new ArrayList<Literal>();
-					for(Literal lit : node.getStateLits()) {
-						if(!lit.equals(new ContainsPeasants(2))) { //remove list
-							if(lit.getClass().toString().equals("class Has")
-									&& ((Has)lit).getObjectID() == townhallIds.get(0)
-									&& ((Has)lit).getResource().equals(ResourceType.GOLD)) {
-								literalsBuild.add(new Has(townhallIds.get(0), ResourceType.GOLD, ((Has)lit).getAmount() - PEASANT_COST));
-							} else {
-								literalsBuild.add(lit);
-							}
-						} else {
-							literalsBuild.add(0, new ContainsPeasants(3)); //add list
-						}
-					}
+				if(node.containsLit(interned.carrying(3, ResourceType.WOOD))
+						&& node.containsLit(interned.carrying(1, ResourceType.WOOD))) { //preconditions
+					Node n = new Node(node, new Deposit2(3, 1, ResourceType.WOOD, 2 * GATHER_AMOUNT),
+							node.getCostToNode() + 1, 0);
 					
-					literalsBuild.add(new AtTownHall(2));
+					estimatedCost = heuristic(n);
 					
-					Node n = new Node(node, new BuildPeasant(), literalsBuild, node.getCostToNode() + 1, 0);
+					n.setCostToGoal(estimatedCost);
+					
+					successors.add(n);
+				}
+			}
+			
+			//Gather2
+			if(!node.containsLit(interned.carrying(3, ResourceType.GOLD))
+					&& !node.containsLit(interned.carrying(1, ResourceType.GOLD))
+					&& !node.containsLit(interned.carrying(3, ResourceType.WOOD))
+					&& !node.containsLit(interned.carrying(1, ResourceType.WOOD))) {
+				if(node.containsLit(interned.atResource(3, ResourceType.GOLD))
+						&& node.containsLit(interned.atResource(1, ResourceType.GOLD))) { //preconditions
+					Node n = new Node(node, new Gather2(3, 1, ResourceType.GOLD, 2 * GATHER_AMOUNT),
+							node.getCostToNode() + 1, 0);
 					
 					estimatedCost = heuristic(n);
 					
 					n.setCostToGoal(estimatedCost);
 					
-					if(!closed.contains(n)) {
-						open.add(n);
-					} else if (open.contains(n)){
-						Node toCompare = open.get(n);
-						if(toCompare.getCostToNode() > n.getCostToNode()) {
-							toCompare.setCostToNode(n.getCostToNode());
-							toCompare.setParentNode(n.getParentNode());
-						}
-					}
+					successors.add(n);
 				}
-			} else if(node.containsLit(new ContainsPeasants(3))){ //three peasants
-				//GotoResource3
-				if(node.containsLit(new AtTownHall(3))
-						&& node.containsLit(new AtTownHall(1))
-						&& node.containsLit(new AtTownHall(2))
-						&& !node.containsLit(new Has(3, ResourceType.GOLD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(1, ResourceType.GOLD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(2, ResourceType.GOLD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(3, ResourceType.WOOD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(1, ResourceType.WOOD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(2, ResourceType.WOOD, GATHER_AMOUNT))) { //preconditions
-					if(needGold) {
-						ArrayList<Literal> literalsGold = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							if(!lit.equals(new AtTownHall(3))
-									&& !lit.equals(new AtTownHall(1))
-									&& !lit.equals(new AtTownHall(2))) { //remove list
-								literalsGold.add(lit);
-							}
-						}
-						literalsGold.add(new AtResource(3, ResourceType.GOLD)); //add list
-						literalsGold.add(new AtResource(1, ResourceType.GOLD));
-						literalsGold.add(new AtResource(2, ResourceType.GOLD));
-						
-						Node n = new Node(node, new GotoResource3(3, 1, 2, ResourceType.GOLD),
-								literalsGold, node.getCostToNode() + 1, 0);
-						
-						estimatedCost = heuristic(n);
-						
-						n.setCostToGoal(estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
-					}
-					if(needWood) {
-						ArrayList<Literal> literalsWood = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							if(!lit.equals(new AtTownHall(3))
-									&& !lit.equals(new AtTownHall(1))
-									&& !lit.equals(new AtTownHall(2))) { //remove list
-								literalsWood.add(lit);
-							}
-						}
-						literalsWood.add(new AtResource(3, ResourceType.WOOD)); //add list
-						literalsWood.add(new AtResource(1, ResourceType.WOOD));
-						literalsWood.add(new AtResource(2, ResourceType.WOOD));
-						
-						Node n = new Node(node, new GotoResource3(3, 1, 2, ResourceType.WOOD),
-								literalsWood, node.getCostToNode() + 1, 0);
-						
-						estimatedCost = heuristic(n);
-						
-						n.setCostToGoal(estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
-					}
+				if(node.containsLit(interned.atResource(3, ResourceType.WOOD))
+						&& node.containsLit(interned.atResource(1, ResourceType.WOOD))) { //preconditions
+					Node n = new Node(node, new Gather2(3, 1, ResourceType.WOOD, 2 * GATHER_AMOUNT),
+							node.getCostToNode() + 1, 0);
+					
+					estimatedCost = heuristic(n);
+					
+					n.setCostToGoal(estimatedCost);
+					
+					successors.add(n);
 				}
+			}
+			
+			//BuildPeasant2
+			boolean enoughGold = neededGold >= PEASANT_COST;
+			
+			if(enoughGold) { //preconditions
+				Node n = new Node(node, new BuildPeasant(PEASANT_COST), node.getCostToNode() + 1, 0);
 				
-				//GotoTownHall3
-				if((node.containsLit(new AtResource(3, ResourceType.GOLD))
-							|| node.containsLit(new AtResource(3, ResourceType.WOOD)))
-						&& (node.containsLit(new Has(3, ResourceType.GOLD, GATHER_AMOUNT))
-							|| node.containsLit(new Has(3, ResourceType.WOOD, GATHER_AMOUNT)))
-						&& (node.containsLit(new AtResource(1, ResourceType.GOLD))
-							|| node.containsLit(new AtResource(1, ResourceType.WOOD)))
-						&& (node.containsLit(new Has(1, ResourceType.GOLD, GATHER_AMOUNT))
-							|| node.containsLit(new Has(1, ResourceType.WOOD, GATHER_AMOUNT)))
-						&& (node.containsLit(new AtResource(2, ResourceType.GOLD))
-							|| node.containsLit(new AtResource(2, ResourceType.WOOD)))
-						&& (node.containsLit(new Has(2, ResourceType.GOLD, GATHER_AMOUNT))
-							|| node.containsLit(new Has(2, ResourceType.WOOD, GATHER_AMOUNT)))) { //preconditions
-					ArrayList<Literal> literals = new ArrayList<Literal>();
-					for(Literal lit : node.getStateLits()) {
-						if(!lit.equals(new AtResource(3, ResourceType.GOLD))
-								&& !lit.equals(new AtResource(3, ResourceType.WOOD))
-								&& !lit.equals(new AtResource(1, ResourceType.GOLD))
-								&& !lit.equals(new AtResource(1, ResourceType.WOOD))
-								&& !lit.equals(new AtResource(2, ResourceType.GOLD))
-								&& !lit.equals(new AtResource(2, ResourceType.WOOD))) { //remove list
-							literals.add(lit);
-						}
-					}
-					
-					literals.add(new AtTownHall(3)); //add list
-					literals.add(new AtTownHall(1));
-					literals.add(new AtTownHall(2));
-
-					Node n = new Node(node, new GotoTownHall3(3, 1, 2),
-							literals, node.getCostToNode() + 1, 0);
+				estimatedCost = heuristic(n);
+				
+				n.setCostToGoal(estimatedCost);
+				
+				successors.add(n);
+			}
+		} else if(PackedState.peasants(state) == 3){ //three peasants
+			//GotoResource3
+			if(node.containsLit(interned.atTownHall(3))
+					&& node.containsLit(interned.atTownHall(1))
+					&& node.containsLit(interned.atTownHall(2))
+					&& !node.containsLit(interned.carrying(3, ResourceType.GOLD))
+					&& !node.containsLit(interned.carrying(1, ResourceType.GOLD))
+					&& !node.containsLit(interned.carrying(2, ResourceType.GOLD))
+					&& !node.containsLit(interned.carrying(3, ResourceType.WOOD))
+					&& !node.containsLit(interned.carrying(1, ResourceType.WOOD))
+					&& !node.containsLit(interned.carrying(2, ResourceType.WOOD))) { //preconditions
+				if(needGold) {
+					Node n = new Node(node, new GotoResource3(3, 1, 2, ResourceType.GOLD),
+							node.getCostToNode() + 1, 0);
 					
 					estimatedCost = heuristic(n);
 					
 					n.setCostToGoal(estimatedCost);
 					
-					if(!closed.contains(n)) {
-						open.add(n);
-					} else if (open.contains(n)){
-						Node toCompare = open.get(n);
-						if(toCompare.getCostToNode() > n.getCostToNode()) {
-							toCompare.setCostToNode(n.getCostToNode());
-							toCompare.setParentNode(n.getParentNode());
-						}
+					successors.add(n);
+					
+					if(macros) {
+						addRoundTrip(node, goldTrips[3], successors);
 					}
 				}
-				
-				//Deposit3
-				if(node.containsLit(new AtTownHall(3))
-						&& node.containsLit(new AtTownHall(1))
-						&& node.containsLit(new AtTownHall(2))) {
-					if(node.containsLit(new Has(3, ResourceType.GOLD, GATHER_AMOUNT))
-							&& node.containsLit(new Has(1, ResourceType.GOLD, GATHER_AMOUNT))
-							&& node.containsLit(new Has(2, ResourceType.GOLD, GATHER_AMOUNT))) { //preconditions
-						ArrayList<Literal> literalsGold = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							if(!lit.equals(new Has(3, ResourceType.GOLD, GATHER_AMOUNT))
-									&& !lit.equals(new Has(1, ResourceType.GOLD, GATHER_AMOUNT))
-									&& !lit.equals(new Has(2, ResourceType.GOLD, GATHER_AMOUNT))) { //remove list
-								if(lit.getClass().toString().equals("class Has")
-										&& ((Has)lit).getObjectID() == townhallIds.get(0)
-										&& ((Has)lit).getResource().equals(ResourceType.GOLD)) {
-									literalsGold.add(new Has(townhallIds.get(0), ResourceType.GOLD, ((Has)lit).getAmount() + 3 * GATHER_AMOUNT));
-								} else {
-									literalsGold.add(lit);
-								}
-							}
-						}
-						
-						Node n = new Node(node, new Deposit3(3, 1, 2, ResourceType.GOLD, 3 * GATHER_AMOUNT),
-								literalsGold, node.getCostToNode() + 1, 0);
-						
-						estimatedCost = heuristic(n);
-						
-						n.setCostToGoal(estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
-					}
-					if(node.containsLit(new Has(3, ResourceType.WOOD, GATHER_AMOUNT))
-							&& node.containsLit(new Has(1, ResourceType.WOOD, GATHER_AMOUNT))
-							&& node.containsLit(new Has(2, ResourceType.WOOD, GATHER_AMOUNT))) { //preconditions
-						ArrayList<Literal> literalsWood = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							if(!lit.equals(new Has(3, ResourceType.WOOD, GATHER_AMOUNT))
-									&& !lit.equals(new Has(1, ResourceType.WOOD, GATHER_AMOUNT))
-									&& !lit.equals(new Has(2, ResourceType.WOOD, GATHER_AMOUNT))) { //remove list
-								if(lit.getClass().toString().equals("class Has")
-										&& ((Has)lit).getObjectID() == townhallIds.get(0)
-										&& ((Has)lit).getResource().equals(ResourceType.WOOD)) {
-									literalsWood.add(new Has(townhallIds.get(0), ResourceType.WOOD, ((Has)lit).getAmount() + 3 * GATHER_AMOUNT));
-								} else {
-									literalsWood.add(lit);
-								}
-							}
-						}
-						
-						Node n = new Node(node, new Deposit3(3, 1, 2, ResourceType.WOOD, 3 * GATHER_AMOUNT),
-								literalsWood, node.getCostToNode() + 1, 0);
-						
-						estimatedCost = heuristic(n);
-						
-						n.setCostToGoal(estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
+				if(needWood) {
+					Node n = new Node(node, new GotoResource3(3, 1, 2, ResourceType.WOOD),
+							node.getCostToNode() + 1, 0);
+					
+					estimatedCost = heuristic(n);
+					
+					n.setCostToGoal(estimatedCost);
+					
+					successors.add(n);
+					
+					if(macros) {
+						addRoundTrip(node, woodTrips[3], successors);
 					}
 				}
+			}
+			
+			//GotoTownHall3
+			if((node.containsLit(interned.atResource(3, ResourceType.GOLD))
+						|| node.containsLit(interned.atResource(3, ResourceType.WOOD)))
+					&& (node.containsLit(interned.carrying(3, ResourceType.GOLD))
+						|| node.containsLit(interned.carrying(3, ResourceType.WOOD)))
+					&& (node.containsLit(interned.atResource(1, ResourceType.GOLD))
+						|| node.containsLit(interned.atResource(1, ResourceType.WOOD)))
+					&& (node.containsLit(interned.carrying(1, ResourceType.GOLD))
+						|| node.containsLit(interned.carrying(1, ResourceType.WOOD)))
+					&& (node.containsLit(interned.atResource(2, ResourceType.GOLD))
+						|| node.containsLit(interned.atResource(2, ResourceType.WOOD)))
+					&& (node.containsLit(interned.carrying(2, ResourceType.GOLD))
+						|| node.containsLit(interned.carrying(2, ResourceType.WOOD)))) { //preconditions
+				Node n = new Node(node, new GotoTownHall3(3, 1, 2),
+						node.getCostToNode() + 1, 0);
 				
-				//Gather3
-				if(!node.containsLit(new Has(3, ResourceType.GOLD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(1, ResourceType.GOLD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(2, ResourceType.GOLD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(3, ResourceType.WOOD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(1, ResourceType.WOOD, GATHER_AMOUNT))
-						&& !node.containsLit(new Has(2, ResourceType.WOOD, GATHER_AMOUNT))) {
-					if(node.containsLit(new AtResource(3, ResourceType.GOLD))
-							&& node.containsLit(new AtResource(1, ResourceType.GOLD))
-							&& node.containsLit(new AtResource(2, ResourceType.GOLD))) { //preconditions
-						ArrayList<Literal> literalsGold = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							literalsGold.add(lit);
-						}
-						
-						literalsGold.add(new Has(3, ResourceType.GOLD, GATHER_AMOUNT)); //add list
-						literalsGold.add(new Has(1, ResourceType.GOLD, GATHER_AMOUNT));
-						literalsGold.add(new Has(2, ResourceType.GOLD, GATHER_AMOUNT));
-						
-						Node n = new Node(node, new Gather3(3, 1, 2, ResourceType.GOLD, 3 * GATHER_AMOUNT),
-								literalsGold, node.getCostToNode() + 1, 0);
-						
-						estimatedCost = heuristic(n);
-						
-						n.setCostToGoal(estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
-					}
-					if(node.containsLit(new AtResource(3, ResourceType.WOOD))
-							&& node.containsLit(new AtResource(1, ResourceType.WOOD))
-							&& node.containsLit(new AtResource(2, ResourceType.WOOD))) { //preconditions
-						ArrayList<Literal> literalsWood = new ArrayList<Literal>();
-						for(Literal lit : node.getStateLits()) {
-							literalsWood.add(lit);
-						}
-						
-						literalsWood.add(new Has(3, ResourceType.WOOD, GATHER_AMOUNT)); //add list
-						literalsWood.add(new Has(1, ResourceType.WOOD, GATHER_AMOUNT));
-						literalsWood.add(new Has(2, ResourceType.WOOD, GATHER_AMOUNT));
-						
-						Node n = new Node(node, new Gather3(3, 1, 2, ResourceType.WOOD, 3 * GATHER_AMOUNT),
-								literalsWood, node.getCostToNode() + 1, 0);
-						
-						estimatedCost = heuristic(n);
-						
-						n.setCostToGoal(estimatedCost);
-						
-						if(!closed.contains(n)) {
-							open.add(n);
-						} else if (open.contains(n)){
-							Node toCompare = open.get(n);
-							if(toCompare.getCostToNode() > n.getCostToNode()) {
-								toCompare.setCostToNode(n.getCostToNode());
-								toCompare.setParentNode(n.getParentNode());
-							}
-						}
-					}
+				estimatedCost = heuristic(n);
+				
+				n.setCostToGoal(estimatedCost);
+				
+				successors.add(n);
+			}
+			
+			//Deposit3
+			if(node.containsLit(interned.atTownHall(3))
+					&& node.containsLit(interned.atTownHall(1))
+					&& node.containsLit(interned.atTownHall(2))) {
+				if(node.containsLit(interned.carrying(3, ResourceType.GOLD))
+						&& node.containsLit(interned.carrying(1, ResourceType.GOLD))
+						&& node.containsLit(interned.carrying(2, ResourceType.GOLD))) { //preconditions
+					Node n = new Node(node, new Deposit3(3, 1, 2, ResourceType.GOLD, 3 * GATHER_AMOUNT),
+							node.getCostToNode() + 1, 0);
+					
+					estimatedCost = heuristic(n);
+					
+					n.setCostToGoal(estimatedCost);
+					
+					successors.add(n);
+				}
+				if(node.containsLit(interned.carrying(3, ResourceType.WOOD))
+						&& node.containsLit(interned.carrying(1, ResourceType.WOOD))
+						&& node.containsLit(interned.carrying(2, ResourceType.WOOD))) { //preconditions
+					Node n = new Node(node, new Deposit3(3, 1, 2, ResourceType.WOOD, 3 * GATHER_AMOUNT),
+							node.getCostToNode() + 1, 0);
+					
+					estimatedCost = heuristic(n);
+					
+					n.setCostToGoal(estimatedCost);
+					
+					successors.add(n);
+				}
+			}
+			
+			//Gather3
+			if(!node.containsLit(interned.carrying(3, ResourceType.GOLD))
+					&& !node.containsLit(interned.carrying(1, ResourceType.GOLD))
+					&& !node.containsLit(interned.carrying(2, ResourceType.GOLD))
+					&& !node.containsLit(interned.carrying(3, ResourceType.WOOD))
+					&& !node.containsLit(interned.carrying(1, ResourceType.WOOD))
+					&& !node.containsLit(interned.carrying(2, ResourceType.WOOD))) {
+				if(node.containsLit(interned.atResource(3, ResourceType.GOLD))
+						&& node.containsLit(interned.atResource(1, ResourceType.GOLD))
+						&& node.containsLit(interned.atResource(2, ResourceType.GOLD))) { //preconditions
+					Node n = new Node(node, new Gather3(3, 1, 2, ResourceType.GOLD, 3 * GATHER_AMOUNT),
+							node.getCostToNode() + 1, 0);
+					
+					estimatedCost = heuristic(n);
+					
+					n.setCostToGoal(estimatedCost);
+					
+					successors.add(n);
+				}
+				if(node.containsLit(interned.atResource(3, ResourceType.WOOD))
+						&& node.containsLit(interned.atResource(1, ResourceType.WOOD))
+						&& node.containsLit(interned.atResource(2, ResourceType.WOOD))) { //preconditions
+					Node n = new Node(node, new Gather3(3, 1, 2, ResourceType.WOOD, 3 * GATHER_AMOUNT),
+							node.getCostToNode() + 1, 0);
+					
+					estimatedCost = heuristic(n);
+					
+					n.setCostToGoal(estimatedCost);
+					
+					successors.add(n);
 				}
 			}
 		}
-		return middleStep(newState, stateHistory);
+		
+		if(preferring()) {
+			prefer(node, successors);
+		}
+	}
+	
+	private boolean preferring() {
+		return lazy && boost > 0 && estimator != null;
+	}
+	
+	/**
+	 * Preferred-operator boosting: helpful successors are queued boost lower,
+	 * so they are evaluated first. The helpful facts were found when node was
+	 * evaluated, so boosting costs no heuristic call.
+	 */
+	private void prefer(Node node, List<Node> successors) {
+		for(Node n : helpful(node.getHelpful(), successors)) {
+			n.setCostToGoal(Math.max(0, n.getCostToGoal() - boost));
+		}
+	}
+	
+	@Override
+	public List<Node> helpful(Node node, List<Node> successors) {
+		if(estimator == null) {
+			return successors;
+		}
+		return helpful(estimator.helpful(node.getState()), successors);
+	}
+	
+	private List<Node> helpful(int helpful, List<Node> successors) {
+		List<Node> chosen = new ArrayList<Node>();
+		for(Node n : successors) {
+			if((GroundAct.progress(n) & helpful) != 0) {
+				chosen.add(n);
+			}
+		}
+		return chosen;
 	}
 
 	@Override
@@ -1026,16 +787,16 @@ public class MultiPeasant extends Agent {
 		if(solution.peek() != null) {
 			Action b = null;
 			Node poll = solution.poll();
-			String actString = poll.getToState().getClass().toString();
+			Act.Kind actKind = poll.getToState().getKind();
 		
-			if(actString.equals("class GotoTownHall")){
+			if(actKind == Act.Kind.GOTO_TOWNHALL){
 				UnitView townhall = currentState.getUnit(townhallIds.get(0));
 				int townX = townhall.getXPosition();
 				int townY = townhall.getYPosition();
 				b = new LocatedAction(peasantIds.get(0), ActionType.COMPOUNDMOVE, townX, townY);
 				nextGoalID = townhallIds.get(0);
 				builder.put(peasantIds.get(0), b);
-			} else if(actString.equals("class GotoTownHall2")){
+			} else if(actKind == Act.Kind.GOTO_TOWNHALL2){
 				UnitView townhall = currentState.getUnit(townhallIds.get(0));
 				int townX = townhall.getXPosition();
 				int townY = townhall.getYPosition();
@@ -1044,7 +805,7 @@ public class MultiPeasant extends Agent {
 
 				builder.put(peasantIds.get(0), b);
 				builder.put(peasantIds.get(1), b);
-			} else if(actString.equals("class GotoTownHall3")){
+			} else if(actKind == Act.Kind.GOTO_TOWNHALL3){
 				UnitView townhall = currentState.getUnit(townhallIds.get(0));
 				int townX = townhall.getXPosition();
 				int townY = townhall.getYPosition();
@@ -1054,7 +815,7 @@ public class MultiPeasant extends Agent {
 				builder.put(peasantIds.get(0), b);
 				builder.put(peasantIds.get(1), b);
 				builder.put(peasantIds.get(2), b);
-			} else if(actString.equals("class GotoResource")) {
+			} else if(actKind == Act.Kind.GOTO_RESOURCE) {
 				ResourceType resource = ((GotoResource)poll.getToState()).getResource();
 				if(resource.equals(ResourceType.GOLD)) {
 					//goto nearest gold
@@ -1070,7 +831,7 @@ public class MultiPeasant extends Agent {
 					b = new LocatedAction(peasantIds.get(0), ActionType.COMPOUNDMOVE, woodPos.x, woodPos.y);
 				}
 				builder.put(peasantIds.get(0), b);
-			} else if(actString.equals("class GotoResource2")) {
+			} else if(actKind == Act.Kind.GOTO_RESOURCE2) {
 				ResourceType resource = ((GotoResource2)poll.getToState()).getResource();
 				if(resource.equals(ResourceType.GOLD)) {
 					//goto nearest gold
@@ -1102,7 +863,7 @@ public class MultiPeasant extends Agent {
 					b = new LocatedAction(peasantIds.get(0), ActionType.COMPOUNDMOVE, woodPos.x, woodPos.y);
 				}
 				builder.put(peasantIds.get(1), b);
-			} else if(actString.equals("class GotoResource3")) {
+			} else if(actKind == Act.Kind.GOTO_RESOURCE3) {
 				//peasant 1
 				ResourceType resource = ((GotoResource3)poll.getToState()).getResource();
 				if(resource.equals(ResourceType.GOLD)) {
@@ -1153,10 +914,10 @@ public class MultiPeasant extends Agent {
 					b = new LocatedAction(peasantIds.get(0), ActionType.COMPOUNDMOVE, woodPos.x, woodPos.y);
 				}
 				builder.put(peasantIds.get(2), b);
-			} else if(actString.equals("class Gather")) {
+			} else if(actKind == Act.Kind.GATHER) {
 				b = new TargetedAction(peasantIds.get(0), ActionType.COMPOUNDGATHER, nextGoalID);
 				builder.put(peasantIds.get(0), b);
-			} else if(actString.equals("class Gather2")) {
+			} else if(actKind == Act.Kind.GATHER2) {
 				//peasant 1
 				b = new TargetedAction(peasantIds.get(0), ActionType.COMPOUNDGATHER, nextGoalID);
 				builder.put(peasantIds.get(0), b);
@@ -1165,7 +926,7 @@ public class MultiPeasant extends Agent {
 				//peasant 2
 				b = new TargetedAction(peasantIds.get(1), ActionType.COMPOUNDGATHER, nextGoalID);
 				builder.put(peasantIds.get(1), b);
-			} else if(actString.equals("class Gather3")) {
+			} else if(actKind == Act.Kind.GATHER3) {
 				//peasant 1
 				b = new TargetedAction(peasantIds.get(0), ActionType.COMPOUNDGATHER, nextGoalID);
 				builder.put(peasantIds.get(0), b);
@@ -1177,10 +938,10 @@ public class MultiPeasant extends Agent {
 				//peasant 3
 				b = new TargetedAction(peasantIds.get(2), ActionType.COMPOUNDGATHER, nextGoalID);
 				builder.put(peasantIds.get(2), b);
-			} else if(actString.equals("class Deposit")) {
+			} else if(actKind == Act.Kind.DEPOSIT) {
 				b = new TargetedAction(peasantIds.get(0), ActionType.COMPOUNDDEPOSIT, townhallIds.get(0));
 				builder.put(peasantIds.get(0), b);
-			} else if(actString.equals("class Deposit2")) {
+			} else if(actKind == Act.Kind.DEPOSIT2) {
 				//peasant 1
 				b = new TargetedAction(peasantIds.get(0), ActionType.COMPOUNDDEPOSIT, townhallIds.get(0));
 				builder.put(peasantIds.get(0), b);
@@ -1188,7 +949,7 @@ public class MultiPeasant extends Agent {
 				//peasant 2
 				b = new TargetedAction(peasantIds.get(1), ActionType.COMPOUNDDEPOSIT, townhallIds.get(0));
 				builder.put(peasantIds.get(1), b);
-			} else if(actString.equals("class Deposit3")) {
+			} else if(actKind == Act.Kind.DEPOSIT3) {
 				//peasant 1
 				b = new TargetedAction(peasantIds.get(0), ActionType.COMPOUNDDEPOSIT, townhallIds.get(0));
 				builder.put(peasantIds.get(0), b);
@@ -1200,7 +961,7 @@ public class MultiPeasant extends Agent {
 				//peasant 3
 				b = new TargetedAction(peasantIds.get(2), ActionType.COMPOUNDDEPOSIT, townhallIds.get(0));
 				builder.put(peasantIds.get(2), b);
-			} else if(actString.equals("class BuildPeasant")) {
+			} else if(actKind == Act.Kind.BUILD_PEASANT) {
 				TemplateView peasantTemplate = currentState.getTemplate(playernum, "Peasant");
 				int peasantTemplateID = peasantTemplate.getID();
 				builder.put(townhallIds.get(0), Action.createCompoundProduction(townhallIds.get(0), peasantTemplateID));
@@ -1250,25 +1011,44 @@ public class MultiPeasant extends Agent {
 //		return dist;
 //	}
 	
+	/**
+	 * In lazy mode a successor gets its parent's h and is evaluated when
+	 * search() pops it. When h counts acts, a macro's acts after the first
+	 * come off that h, so it queues level with the single acts.
+	 *
+	 * The built-in estimate keeps falling as stock grows, past the target too,
+	 * so states with more stock than the goal can ever use are cut off here.
+	 */
 	public int heuristic(Node node) {
-		int heuristic = 0;
-		int goldAmount = 0;
-		int woodAmount = 0;
-		int peasantCount = 0;
-		for(Literal lit : node.getStateLits()) {
-			String litStr = lit.getClass().toString();
-			if(litStr.equals("class Has") && ((Has)lit).getObjectID() == townhallIds.get(0)
-					&& ((Has)lit).getResource().equals(ResourceType.GOLD)) {
-				goldAmount = ((Has)lit).getAmount();
-			}
-			if(litStr.equals("class Has") && ((Has)lit).getObjectID() == townhallIds.get(0)
-					&& ((Has)lit).getResource().equals(ResourceType.WOOD)) {
-				woodAmount = ((Has)lit).getAmount();
-			}
-			if(litStr.equals("class ContainsPeasants")) {
-				peasantCount = ((ContainsPeasants)lit).getNumPeasants();
+		if(estimator == null && GroundAct.deadEnd(node.getState(), goalState, goalMask, ops, encoding.getSlotCount())) {
+			return GroundAct.INFINITE;
+		}
+		if(lazy && node.getParentNode() != null) {
+			Node parent = node.getParentNode();
+			node.setDeferred(true);
+			if(estimator == null) {
+				return parent.getCostToGoal();
 			}
+			return Math.max(0, parent.getCostToGoal() - (node.getCostToNode() - parent.getCostToNode() - 1));
+		}
+		return evaluate(node);
+	}
+	
+	private int evaluate(Node node) {
+		evaluations.incrementAndGet();
+		if(estimator != null && preferring()) {
+			int[] helpful = new int[1];
+			int h = estimator.estimate(node.getState(), helpful);
+			node.setHelpful(helpful[0]);
+			return h;
+		} else if(estimator != null) {
+			return estimator.estimate(node.getState());
 		}
+		int heuristic = 0;
+		long state = node.getState();
+		int goldAmount = PackedState.gold(state);
+		int woodAmount = PackedState.wood(state);
+		int peasantCount = PackedState.peasants(state);
 		
 		heuristic += (targetGold - goldAmount) * 5;
 		heuristic += (targetWood - woodAmount) * 4;
@@ -1296,6 +1076,34 @@ public class MultiPeasant extends Agent {
 		return heuristic;
 	}
 
+	/**
+	 * Queues a successor unless its state was already expanded. If the state is
+	 * already queued and n reaches it more cheaply, n takes its place in the queue.
+	 * 
+	 * @param n - The successor to queue
+	 */
+	private void addToOpen(Node n) {
+		if(n.getCostToGoal() >= GroundAct.INFINITE) {
+			return; //a dead end
+		}
+		if(closed.contains(n) || (dominance != null && dominance.dominated(n))) {
+			return;
+		}
+		n.setOrder(stats.generated());
+		Node toCompare = open.get(n);
+		if(toCompare == null) {
+			open.add(n);
+		} else if(toCompare.getCostToNode() > n.getCostToNode()) {
+			if(n.isDeferred()) { //same state, so keep the better-known h and do not raise the key
+				n.setCostToGoal(toCompare.isDeferred() ? Math.min(n.getCostToGoal(), toCompare.getCostToGoal())
+						: toCompare.getCostToGoal());
+				n.setDeferred(toCompare.isDeferred());
+				n.setHelpful(toCompare.getHelpful());
+			}
+			open.decreaseKey(n);
+		}
+	}
+
 	private int getClosestWoodID(Point unit, StateView state) {
 		List<Integer> resourceIds = state.getResourceNodeIds(Type.TREE);
 		int closestWoodID = resourceIds.get(0);
@@ -1368,27 +1176,29 @@ public class MultiPeasant extends Agent {
 		outputPlan.println("TOTAL PLAN LENGTH: " + solution.size());
 		for(Node node : solution) {
 			act = node.getToState();
-			if(act.getClass().toString().equals("class GotoResource")) {
+			if(act.getKind() == Act.Kind.GOTO_RESOURCE) {
 				outputPlan.println("Goto " + ((GotoResource)act).getResourceString());
-			} else if(act.getClass().toString().contains("class GotoTownHall")) {
+			} else if(act.getKind() == Act.Kind.GOTO_TOWNHALL
+					|| act.getKind() == Act.Kind.GOTO_TOWNHALL2
+					|| act.getKind() == Act.Kind.GOTO_TOWNHALL3) {
 				outputPlan.println("Goto TOWNHALL");
-			} else if(act.getClass().toString().equals("class Gather")) {
+			} else if(act.getKind() == Act.Kind.GATHER) {
 				outputPlan.println("Gather " + ((Gather)act).getAmount() + " " + ((Gather)act).getResourceString());
-			} else if(act.getClass().toString().equals("class Deposit")) {
+			} else if(act.getKind() == Act.Kind.DEPOSIT) {
 				outputPlan.println("Deposit " + ((Deposit)act).getAmount() + " " + ((Deposit)act).getResourceString());
-			} else if(act.getClass().toString().equals("class BuildPeasant")) {
+			} else if(act.getKind() == Act.Kind.BUILD_PEASANT) {
 				outputPlan.println("Produce Peasant");
-			} else if(act.getClass().toString().equals("class GotoResource2")) {
+			} else if(act.getKind() == Act.Kind.GOTO_RESOURCE2) {
 				outputPlan.println("Goto " + ((GotoResource2)act).getResourceString());
-			} else if(act.getClass().toString().equals("class Gather2")) {
+			} else if(act.getKind() == Act.Kind.GATHER2) {
 				outputPlan.println("Gather " + ((Gather2)act).getAmount() + " " + ((Gather2)act).getResourceString());
-			} else if(act.getClass().toString().equals("class Deposit2")) {
+			} else if(act.getKind() == Act.Kind.DEPOSIT2) {
 				outputPlan.println("Deposit " + ((Deposit2)act).getAmount() + " " + ((Deposit2)act).getResourceString());
-			} else if(act.getClass().toString().equals("class GotoResource3")) {
+			} else if(act.getKind() == Act.Kind.GOTO_RESOURCE3) {
 				outputPlan.println("Goto " + ((GotoResource3)act).getResourceString());
-			} else if(act.getClass().toString().equals("class Gather3")) {
+			} else if(act.getKind() == Act.Kind.GATHER3) {
 				outputPlan.println("Gather " + ((Gather3)act).getAmount() + " " + ((Gather3)act).getResourceString());
-			} else if(act.getClass().toString().equals("class Deposit3")) {
+			} else if(act.getKind() == Act.Kind.DEPOSIT3) {
 				outputPlan.println("Deposit " + ((Deposit3)act).getAmount() + " " + ((Deposit3)act).getResourceString());
 			}
 		}
@@ -4,26 +4,50 @@ public class Node implements Comparable<Object>{
 	
 	private Node parent;
 	private Act toState;
-	private ArrayList<Literal> stateLits;
+	private LiteralTable literals;
+	private long state;
 	private int costToNode;
 	private int costToGoal;
+	private long hash;
+	private long order;
+	private boolean deferred; //costToGoal is the parent's, see MultiPeasant's lazy evaluation
+	private int helpful; //facts the heuristic counts on next, found along with costToGoal when lazy
 
 	/**
+	 * A successor only records the act that led to it. Its state is the act's
+	 * effects applied to the parent's packed state, and its literals are the
+	 * shared canonical instances, listed on demand.
 	 * 
 	 * @param parent - The parent of the node
 	 * @param toState - The Act made to get to the state
-	 * @param stateLits - The state literals
 	 * @param costToNode - The total cost to get to the node
 	 * @param costToGoal - The estimated cost to the goal
 	 */
-	public Node(Node parent, Act toState, ArrayList<Literal> stateLits, int costToNode, int costToGoal) {
+	public Node(Node parent, Act toState, int costToNode, int costToGoal) {
 		this.parent = parent;
 		this.toState = toState;
-		this.stateLits = stateLits;
+		this.literals = parent.literals;
+		PackedState encoding = literals.getEncoding();
+		this.state = toState.apply(parent.state, encoding);
+		this.hash = Zobrist.update(parent.hash, parent.state, state, toState.writes(parent.state, encoding));
 		this.costToNode = costToNode;
 		this.costToGoal = costToGoal;
 	}
 	
+	/**
+	 * 
+	 * @param stateLits - The literals of the initial state
+	 * @param literals - The canonical literals and state encoding of the problem
+	 * @param costToGoal - The estimated cost to the goal
+	 */
+	public Node(ArrayList<Literal> stateLits, LiteralTable literals, int costToGoal) {
+		this.literals = literals;
+		this.state = literals.getEncoding().encode(stateLits);
+		this.hash = Zobrist.hash(state);
+		this.costToNode = 0;
+		this.costToGoal = costToGoal;
+	}
+	
 	public Node getParentNode() {
 		return parent;
 	}
@@ -48,25 +72,75 @@ public class Node implements Comparable<Object>{
 		this.costToGoal = costToGoal;
 	}
 	
+	/**
+	 * 
+	 * @return True if the node's own heuristic has not been computed yet
+	 */
+	public boolean isDeferred() {
+		return deferred;
+	}
+	
+	public void setDeferred(boolean deferred) {
+		this.deferred = deferred;
+	}
+	
+	/**
+	 * 
+	 * @return The helpful facts of the state, as Heuristic.helpful reports them
+	 */
+	public int getHelpful() {
+		return helpful;
+	}
+	
+	public void setHelpful(int helpful) {
+		this.helpful = helpful;
+	}
+	
+	/**
+	 * 
+	 * @return The position of the node in the order nodes were generated
+	 */
+	public long getOrder() {
+		return order;
+	}
+	
+	public void setOrder(long order) {
+		this.order = order;
+	}
+	
 	public Act getToState() {
 		return toState;
 	}
 	
 	public ArrayList<Literal> getStateLits() {
-		return stateLits;
+		return literals.decode(state);
+	}
+	
+	public LiteralTable getLiterals() {
+		return literals;
+	}
+	
+	/**
+	 * 
+	 * @return The packed state
+	 */
+	public long getState() {
+		return state;
+	}
+	
+	/**
+	 * 
+	 * @return The Zobrist hash of the state
+	 */
+	public long getHash() {
+		return hash;
 	}
 
+	/**
+	 * Tests the literal's field of the packed state, so nothing is decoded.
+	 */
 	public boolean containsLit(Literal toFind) {
-		String toFindClass = toFind.getClass().toString();
-		for(Literal stateLit : stateLits) {
-			String classType = stateLit.getClass().toString();
-			if(classType.equals(toFindClass)) {
-				if(stateLit.equals(toFind)){
-					return true;
-				}
-			}
-		}
-		return false;
+		return literals.getEncoding().holds(state, toFind);
 	}
 	
 	@Override
@@ -83,24 +157,15 @@ public class Node implements Comparable<Object>{
 	
 	@Override
 	public boolean equals(Object obj) {
-		if(obj == null || !obj.getClass().toString().equals("class Node")) {
-			return false;
-		}
-		Node n = (Node)obj;
-		if(n.stateLits.size() != this.stateLits.size())  {
+		if(!(obj instanceof Node)) {
 			return false;
 		}
-		for(Literal lit : n.stateLits) {
-			if(!this.containsLit(lit)) {
-				return false;
-			}
-		}
-		for(Literal lit : this.stateLits) {
-			if(!n.containsLit(lit)) {
-				return false;
-			}
-		}
-		return true;
+		return ((Node)obj).state == this.state;
+	}
+	
+	@Override
+	public int hashCode() {
+		return (int)(hash ^ (hash >>> 32));
 	}
 
 }
@@ -0,0 +1,157 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import edu.cwru.sepia.environment.model.state.ResourceType;
+
+/**
+ * Plans pure resource-count goals without search. The peasants always move as
+ * one group, so a plan is a series of phases: the group of j peasants makes
+ * round trips of j loads each, then builds the next peasant once the townhall
+ * can pay for it. The last phase is made with the full group.
+ *
+ * Since the goal amounts are exact, the last phase can only fetch multiples of
+ * its group's load. Remainders are made up by a few extra trips in the
+ * earlier phases. With at most three peasants there are few enough choices to
+ * try them all and keep the shortest plan.
+ *
+ * Problems the formula does not cover yield no plan, and the caller searches.
+ */
+public class NumericPlanner {
+
+	private PackedState encoding;
+	private int peasantCost;
+
+	private List<Act> best;
+
+	/**
+	 *
+	 * @param encoding - The state encoding of the problem
+	 * @param peasantCost - The gold a new peasant costs
+	 */
+	public NumericPlanner(PackedState encoding, int peasantCost) {
+		this.encoding = encoding;
+		this.peasantCost = peasantCost;
+	}
+
+	/**
+	 *
+	 * @param root - The initial node
+	 * @param goalState - The packed goal
+	 * @param goalMask - The fields the goal constrains
+	 * @return The last node of the plan, or null if the formula does not cover the problem
+	 */
+	public Node plan(Node root, long goalState, long goalMask) {
+		long init = root.getState();
+		long amounts = PackedState.GOLD_MASK | PackedState.WOOD_MASK;
+		if((goalMask & amounts) != amounts || (goalMask & ~(amounts | PackedState.PEASANT_MASK)) != 0) {
+			return null; //goal constrains the peasants themselves
+		}
+		if(PackedState.peasants(init) != 1 || PackedState.location(init, 0) != PackedState.TOWNHALL
+				|| PackedState.cargo(init, 0) != PackedState.EMPTY) {
+			return null;
+		}
+		int peasants = (goalMask & PackedState.PEASANT_MASK) != 0 ? PackedState.peasants(goalState) : 1;
+		int load = encoding.getCargoAmount();
+		int gold = PackedState.gold(goalState) - PackedState.gold(init);
+		int wood = PackedState.wood(goalState) - PackedState.wood(init);
+		if(peasants < 1 || peasants > encoding.getSlotCount() || gold < 0 || wood < 0
+				|| gold % load != 0 || wood % load != 0) {
+			return null;
+		}
+
+		best = null;
+		int[] extraGold = new int[peasants];
+		int[] extraWood = new int[peasants];
+		choose(1, peasants, extraGold, extraWood, PackedState.gold(init), PackedState.gold(goalState),
+				PackedState.wood(init), PackedState.wood(goalState));
+		if(best == null) {
+			return null;
+		}
+
+		Node node = root;
+		for(Act act : best) {
+			node = new Node(node, act, node.getCostToNode() + 1, 0);
+		}
+		if((node.getState() & goalMask) != goalState) {
+			return null;
+		}
+		return node;
+	}
+
+	/**
+	 * Tries every count of extra trips, up to one less than the final group
+	 * size, for each resource in each phase before the last.
+	 */
+	private void choose(int phase, int peasants, int[] extraGold, int[] extraWood,
+			int initGold, int targetGold, int initWood, int targetWood) {
+		if(phase == peasants) {
+			List<Act> plan = build(peasants, extraGold, extraWood, initGold, targetGold, initWood, targetWood);
+			if(plan != null && (best == null || plan.size() < best.size())) {
+				best = plan;
+			}
+			return;
+		}
+		for(int g = 0; g < peasants; g++) {
+			for(int w = 0; w < peasants; w++) {
+				extraGold[phase] = g;
+				extraWood[phase] = w;
+				choose(phase + 1, peasants, extraGold, extraWood, initGold, targetGold, initWood, targetWood);
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @return The plan for the given extra trips, or null if its last phase cannot land on the targets
+	 */
+	private List<Act> build(int peasants, int[] extraGold, int[] extraWood,
+			int gold, int targetGold, int wood, int targetWood) {
+		List<Act> plan = new ArrayList<Act>();
+		int load = encoding.getCargoAmount();
+		for(int phase = 1; phase < peasants; phase++) {
+			int[] group = group(phase);
+			Macro goldTrip = Macro.roundTrip(group, ResourceType.GOLD, load);
+			while(gold < peasantCost) {
+				plan.addAll(goldTrip.getSteps());
+				gold += load * phase;
+			}
+			for(int i = 0; i < extraGold[phase]; i++) {
+				plan.addAll(goldTrip.getSteps());
+				gold += load * phase;
+			}
+			Macro woodTrip = Macro.roundTrip(group, ResourceType.WOOD, load);
+			for(int i = 0; i < extraWood[phase]; i++) {
+				plan.addAll(woodTrip.getSteps());
+				wood += load * phase;
+			}
+			plan.add(new BuildPeasant(peasantCost));
+			gold -= peasantCost;
+		}
+
+		int groupLoad = load * peasants;
+		int restGold = targetGold - gold;
+		int restWood = targetWood - wood;
+		if(restGold < 0 || restWood < 0 || restGold % groupLoad != 0 || restWood % groupLoad != 0) {
+			return null;
+		}
+		int[] group = group(peasants);
+		Macro goldTrip = Macro.roundTrip(group, ResourceType.GOLD, load);
+		for(int i = 0; i < restGold / groupLoad; i++) {
+			plan.addAll(goldTrip.getSteps());
+		}
+		Macro woodTrip = Macro.roundTrip(group, ResourceType.WOOD, load);
+		for(int i = 0; i < restWood / groupLoad; i++) {
+			plan.addAll(woodTrip.getSteps());
+		}
+		return plan;
+	}
+
+	private int[] group(int size) {
+		int[] ids = new int[encoding.getSlotCount()];
+		for(int i = 0; i < ids.length; i++) {
+			ids[i] = encoding.getPeasantID(i);
+		}
+		return Arrays.copyOf(ids, size);
+	}
+}
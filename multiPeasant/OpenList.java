@@ -0,0 +1,35 @@
+/**
+ * The open list of a best-first search. Queued elements are looked up by
+ * equality, so a cheaper path to a queued state can replace the old one.
+ * Iteration visits the queued elements in no particular order.
+ */
+public interface OpenList<E> extends Iterable<E> {
+
+	/**
+	 *
+	 * @param e - The element to queue
+	 * @return False if an equal element is already queued
+	 */
+	public boolean add(E e);
+
+	public E poll();
+
+	public E get(E e);
+
+	public boolean contains(E e);
+
+	/**
+	 * Replaces the queued element equal to e with e. The caller must only use
+	 * this when e orders before the element it replaces.
+	 *
+	 * @param e - The element with the lowered key
+	 * @return False if no equal element is queued
+	 */
+	public boolean decreaseKey(E e);
+
+	public int size();
+
+	public boolean isEmpty();
+
+	public void clear();
+}
@@ -0,0 +1,248 @@
+import java.util.List;
+
+import edu.cwru.sepia.environment.model.state.ResourceType;
+
+/**
+ * Packs a symbolic resource state into a single long so that states can be
+ * compared and goal tested on primitives.
+ *
+ * Layout, from the low bits up:
+ *   24 bits - gold held by the townhall
+ *   24 bits - wood held by the townhall
+ *    2 bits - number of peasants
+ *   4 bits per peasant slot (up to MAX_PEASANTS) - 2 bits location, 2 bits cargo
+ *
+ * Peasants are mapped to slots by the order of the IDs given to the constructor.
+ */
+public class PackedState {
+
+	public static final int MAX_PEASANTS = 3;
+	public static final int MAX_AMOUNT = (1 << 24) - 1;
+
+	//locations
+	public static final int NOWHERE = 0;
+	public static final int TOWNHALL = 1;
+	public static final int GOLD_MINE = 2;
+	public static final int FOREST = 3;
+
+	//cargo
+	public static final int EMPTY = 0;
+	public static final int GOLD = 1;
+	public static final int WOOD = 2;
+
+	private static final int WOOD_SHIFT = 24;
+	private static final int PEASANT_SHIFT = 48;
+	private static final int SLOT_SHIFT = 50;
+	private static final long AMOUNT_MASK = MAX_AMOUNT;
+
+	//field masks
+	public static final long GOLD_MASK = AMOUNT_MASK;
+	public static final long WOOD_MASK = AMOUNT_MASK << WOOD_SHIFT;
+	public static final long PEASANT_MASK = 3L << PEASANT_SHIFT;
+
+	private int townhallID;
+	private int[] peasantIDs;
+	private int cargoAmount;
+
+	/**
+	 *
+	 * @param townhallID - ID of the townhall whose resources are tracked
+	 * @param peasantIDs - IDs of the peasants, in slot order
+	 * @param cargoAmount - The amount a peasant carries after one gather
+	 */
+	public PackedState(int townhallID, int[] peasantIDs, int cargoAmount) {
+		if(peasantIDs.length > MAX_PEASANTS) {
+			throw new IllegalArgumentException("At most " + MAX_PEASANTS + " peasants can be packed");
+		}
+		this.townhallID = townhallID;
+		this.peasantIDs = peasantIDs;
+		this.cargoAmount = cargoAmount;
+	}
+
+	public int getTownhallID() {
+		return townhallID;
+	}
+
+	public int getSlotCount() {
+		return peasantIDs.length;
+	}
+
+	public int getPeasantID(int slot) {
+		return peasantIDs[slot];
+	}
+
+	public int getCargoAmount() {
+		return cargoAmount;
+	}
+
+	/**
+	 *
+	 * @param objectID - A peasant ID
+	 * @return The slot of the peasant
+	 */
+	public int slotOf(int objectID) {
+		for(int i = 0; i < peasantIDs.length; i++) {
+			if(peasantIDs[i] == objectID) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("Unit " + objectID + " has no peasant slot");
+	}
+
+	public long encode(List<Literal> lits) {
+		long state = 0;
+		for(Literal lit : lits) {
+			state = set(state, lit);
+		}
+		return state;
+	}
+
+	/**
+	 * Builds a mask with every field that the given literals constrain, so a
+	 * partial state such as a goal can be tested with (state & mask) == goal.
+	 */
+	public long mask(List<Literal> lits) {
+		long mask = 0;
+		for(Literal lit : lits) {
+			mask |= fieldMask(lit);
+		}
+		return mask;
+	}
+
+	/**
+	 * Tests one literal against the state's bits, without decoding it.
+	 *
+	 * @return True if lit holds in state
+	 */
+	public boolean holds(long state, Literal lit) {
+		return (state & fieldMask(lit)) == set(0, lit);
+	}
+
+	private long set(long state, Literal lit) {
+		if(lit.getKind() == Literal.Kind.CONTAINS_PEASANTS) {
+			return withPeasants(state, ((ContainsPeasants)lit).getNumPeasants());
+		} else if(lit.getKind() == Literal.Kind.HAS) {
+			Has has = (Has)lit;
+			if(has.getObjectID() == townhallID) {
+				if(has.getResource().equals(ResourceType.GOLD)) {
+					return withGold(state, has.getAmount());
+				}
+				return withWood(state, has.getAmount());
+			}
+			return withCargo(state, slotOf(has.getObjectID()), cargoOf(has.getResource()));
+		} else if(lit.getKind() == Literal.Kind.AT_TOWNHALL) {
+			return withLocation(state, slotOf(((AtTownHall)lit).getObjectID()), TOWNHALL);
+		} else if(lit.getKind() == Literal.Kind.AT_RESOURCE) {
+			AtResource at = (AtResource)lit;
+			return withLocation(state, slotOf(at.getObjectID()), locationOf(at.getType()));
+		}
+		throw new IllegalArgumentException("Cannot pack " + lit.getKind());
+	}
+
+	private long fieldMask(Literal lit) {
+		if(lit.getKind() == Literal.Kind.CONTAINS_PEASANTS) {
+			return PEASANT_MASK;
+		} else if(lit.getKind() == Literal.Kind.HAS) {
+			Has has = (Has)lit;
+			if(has.getObjectID() == townhallID) {
+				return amountMask(has.getResource());
+			}
+			return cargoMask(slotOf(has.getObjectID()));
+		} else if(lit.getKind() == Literal.Kind.AT_TOWNHALL) {
+			return locationMask(slotOf(((AtTownHall)lit).getObjectID()));
+		} else if(lit.getKind() == Literal.Kind.AT_RESOURCE) {
+			return locationMask(slotOf(((AtResource)lit).getObjectID()));
+		}
+		throw new IllegalArgumentException("Cannot pack " + lit.getKind());
+	}
+
+	public static int locationOf(ResourceType resource) {
+		return resource.equals(ResourceType.GOLD) ? GOLD_MINE : FOREST;
+	}
+
+	public static int cargoOf(ResourceType resource) {
+		return resource.equals(ResourceType.GOLD) ? GOLD : WOOD;
+	}
+
+	public static long amountMask(ResourceType resource) {
+		return resource.equals(ResourceType.GOLD) ? GOLD_MASK : WOOD_MASK;
+	}
+
+	public static long locationMask(int slot) {
+		return 3L << (SLOT_SHIFT + 4 * slot);
+	}
+
+	public static long cargoMask(int slot) {
+		return 3L << (SLOT_SHIFT + 4 * slot + 2);
+	}
+
+	public static int amount(long state, ResourceType resource) {
+		return resource.equals(ResourceType.GOLD) ? gold(state) : wood(state);
+	}
+
+	public static long withAmount(long state, ResourceType resource, int amount) {
+		return resource.equals(ResourceType.GOLD) ? withGold(state, amount) : withWood(state, amount);
+	}
+
+	public static int gold(long state) {
+		return (int)(state & AMOUNT_MASK);
+	}
+
+	public static int wood(long state) {
+		return (int)((state >>> WOOD_SHIFT) & AMOUNT_MASK);
+	}
+
+	public static int peasants(long state) {
+		return (int)((state >>> PEASANT_SHIFT) & 3);
+	}
+
+	public static int location(long state, int slot) {
+		return (int)((state >>> (SLOT_SHIFT + 4 * slot)) & 3);
+	}
+
+	public static int cargo(long state, int slot) {
+		return (int)((state >>> (SLOT_SHIFT + 4 * slot + 2)) & 3);
+	}
+
+	public static long withGold(long state, int gold) {
+		return (state & ~AMOUNT_MASK) | checkAmount(gold);
+	}
+
+	public static long withWood(long state, int wood) {
+		return (state & ~(AMOUNT_MASK << WOOD_SHIFT)) | ((long)checkAmount(wood) << WOOD_SHIFT);
+	}
+
+	public static long withPeasants(long state, int peasants) {
+		if(peasants < 0 || peasants > MAX_PEASANTS) {
+			throw new IllegalArgumentException("Peasant count out of range: " + peasants);
+		}
+		return (state & ~(3L << PEASANT_SHIFT)) | ((long)peasants << PEASANT_SHIFT);
+	}
+
+	public static long withLocation(long state, int slot, int location) {
+		int shift = SLOT_SHIFT + 4 * slot;
+		return (state & ~(3L << shift)) | ((long)location << shift);
+	}
+
+	public static long withCargo(long state, int slot, int cargo) {
+		int shift = SLOT_SHIFT + 4 * slot + 2;
+		return (state & ~(3L << shift)) | ((long)cargo << shift);
+	}
+
+	/**
+	 * Adds a deposited amount to the townhall's stock of the resource.
+	 */
+	public static long deposit(long state, ResourceType resource, int amount) {
+		if(resource.equals(ResourceType.GOLD)) {
+			return withGold(state, gold(state) + amount);
+		}
+		return withWood(state, wood(state) + amount);
+	}
+
+	private static int checkAmount(int amount) {
+		if(amount < 0 || amount > MAX_AMOUNT) {
+			throw new IllegalArgumentException("Resource amount out of range: " + amount);
+		}
+		return amount;
+	}
+}
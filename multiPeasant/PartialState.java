@@ -0,0 +1,80 @@
+/**
+ * A partially specified packed state: the fields set in mask must hold the
+ * bits in value, the rest are free. Regression searches over these, starting
+ * from the goal.
+ */
+public class PartialState {
+
+	private final long value;
+	private final long mask;
+
+	/**
+	 *
+	 * @param value - The required bits, zero outside the mask
+	 * @param mask - The constrained fields
+	 */
+	public PartialState(long value, long mask) {
+		this.value = value & mask;
+		this.mask = mask;
+	}
+
+	public long getValue() {
+		return value;
+	}
+
+	public long getMask() {
+		return mask;
+	}
+
+	public boolean constrains(long field) {
+		return (mask & field) != 0;
+	}
+
+	/**
+	 *
+	 * @param field - The mask of one field
+	 * @param fieldValue - Bits of the field, in place
+	 * @return True if the field is constrained to something other than fieldValue
+	 */
+	public boolean conflicts(long field, long fieldValue) {
+		return constrains(field) && (value & field) != (fieldValue & field);
+	}
+
+	/**
+	 *
+	 * @return This state with the field constrained to fieldValue, or null if it conflicts
+	 */
+	public PartialState require(long field, long fieldValue) {
+		if(conflicts(field, fieldValue)) {
+			return null;
+		}
+		return new PartialState(value | (fieldValue & field), mask | field);
+	}
+
+	/**
+	 *
+	 * @return This state with the field free
+	 */
+	public PartialState release(long field) {
+		return new PartialState(value & ~field, mask & ~field);
+	}
+
+	public boolean satisfiedBy(long state) {
+		return (state & mask) == value;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if(!(obj instanceof PartialState)) {
+			return false;
+		}
+		PartialState other = (PartialState)obj;
+		return other.value == value && other.mask == mask;
+	}
+
+	@Override
+	public int hashCode() {
+		long h = value * 0x9E3779B97F4A7C15L ^ mask;
+		return (int)(h ^ (h >>> 32));
+	}
+}
@@ -0,0 +1,378 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import edu.cwru.sepia.environment.model.state.ResourceType;
+
+/**
+ * Exact goal distances over an abstraction of the state space, found by a
+ * breadth-first search backward from the goal states. The abstraction keeps
+ * the peasant count, every peasant's location and cargo, and the townhall's
+ * stock in units of one load. Gold runs up to the target plus what building
+ * the missing peasants costs, and wood up to its target. A state with more
+ * stock than that can never reach the goal.
+ *
+ * The distances are one short per abstract state and are written to a file
+ * named after the problem. Later runs with the same problem memory-map that
+ * file instead of searching again.
+ */
+public class PatternDatabase implements Heuristic {
+
+	private static final Logger logger = Logger.getLogger(PatternDatabase.class.getCanonicalName());
+
+	private static final int MAGIC = 0x50444232; //"PDB2"
+	private static final int HEADER = 20; //magic, signature, entries
+	private static final short UNREACHABLE = -1;
+	private static final int PLACES = 9; //location and cargo of one peasant
+	private static final ResourceType[] RESOURCES = {ResourceType.GOLD, ResourceType.WOOD};
+
+	private PackedState encoding;
+	private List<Act> acts;
+	private List<GroundAct> ops;
+	private long goalState;
+	private long goalMask;
+	private int goldUnits; //highest stock, in loads
+	private int woodUnits;
+	private int[] configStart; //first configuration index, by peasant count
+	private long entries;
+
+	private ShortBuffer distances;
+	private String source;
+
+	/**
+	 *
+	 * @param encoding - The state encoding of the problem
+	 * @param acts - The ground acts available to the planner
+	 * @param goalState - The packed goal
+	 * @param goalMask - The fields the goal constrains
+	 */
+	private PatternDatabase(PackedState encoding, List<Act> acts, long goalState, long goalMask) {
+		this.encoding = encoding;
+		this.acts = acts;
+		ops = GroundAct.ground(encoding, acts);
+		this.goalState = goalState;
+		this.goalMask = goalMask;
+
+		int load = encoding.getCargoAmount();
+		int spent = 0;
+		for(Act act : acts) {
+			spent = Math.max(spent, act.required(ResourceType.GOLD));
+		}
+		goldUnits = (PackedState.gold(goalState) + (encoding.getSlotCount() - 1) * spent) / load;
+		woodUnits = PackedState.wood(goalState) / load;
+
+		configStart = new int[encoding.getSlotCount() + 2];
+		int size = 1;
+		for(int peasants = 1; peasants <= encoding.getSlotCount(); peasants++) {
+			size *= PLACES;
+			configStart[peasants + 1] = configStart[peasants] + size;
+		}
+		entries = (long)configStart[encoding.getSlotCount() + 1] * (goldUnits + 1) * (woodUnits + 1);
+	}
+
+	/**
+	 * Maps the database of the problem from directory, or builds and saves it
+	 * there.
+	 *
+	 * @param directory - Where databases are cached
+	 * @param maxEntries - The largest database to build
+	 * @return The database, or null if the goal does not fix the stock in whole loads or the database would be too large
+	 */
+	public static PatternDatabase load(PackedState encoding, List<Act> acts, long goalState, long goalMask,
+			File directory, long maxEntries) {
+		long amounts = PackedState.GOLD_MASK | PackedState.WOOD_MASK;
+		if((goalMask & amounts) != amounts) {
+			return null;
+		}
+		int load = encoding.getCargoAmount();
+		for(ResourceType resource : RESOURCES) {
+			boolean whole = PackedState.amount(goalState, resource) % load == 0;
+			for(Act act : acts) {
+				whole &= act.required(resource) % load == 0;
+			}
+			if(!whole) { //the abstraction counts stock in loads
+				if(logger.isLoggable(Level.FINE)) {
+					logger.fine("No pattern database, " + resource + " is not counted in whole loads of " + load);
+				}
+				return null;
+			}
+		}
+		PatternDatabase pdb = new PatternDatabase(encoding, acts, goalState, goalMask);
+		if(pdb.entries > maxEntries) {
+			if(logger.isLoggable(Level.FINE)) {
+				logger.fine("Pattern database of " + pdb.entries + " entries is over the limit of " + maxEntries);
+			}
+			return null;
+		}
+
+		long start = System.nanoTime();
+		File file = new File(directory, "pdb-" + Long.toHexString(pdb.signature()) + ".bin");
+		if(!pdb.map(file)) {
+			short[] built = pdb.build();
+			pdb.distances = ShortBuffer.wrap(built);
+			pdb.source = "built";
+			try {
+				pdb.save(file, built);
+				if(pdb.map(file)) {
+					pdb.source = "built and saved to " + file;
+				}
+			} catch(IOException e) {
+				e.printStackTrace();
+			}
+		}
+		if(logger.isLoggable(Level.FINE)) {
+			logger.fine("Pattern database " + pdb + " in " + (System.nanoTime() - start) / 1000000 + " ms");
+		}
+		return pdb;
+	}
+
+	@Override
+	public int estimate(long state) {
+		long index = index(state);
+		if(index < 0) {
+			return GroundAct.INFINITE;
+		}
+		short distance = distances.get((int)index);
+		return distance == UNREACHABLE ? GroundAct.INFINITE : distance;
+	}
+
+	/**
+	 * The effects of the acts that lower the distance.
+	 */
+	@Override
+	public int helpful(long state) {
+		int h = estimate(state);
+		int helpful = 0;
+		for(GroundAct op : ops) {
+			if(op.applies(state) && estimate(op.getAct().apply(state, encoding)) < h) {
+				helpful |= op.getProgress();
+			}
+		}
+		return helpful;
+	}
+
+	@Override
+	public int estimate(long state, int[] helpful) {
+		helpful[0] = helpful(state);
+		return estimate(state);
+	}
+
+	@Override
+	public String toString() {
+		return source + ", " + entries + " entries";
+	}
+
+	/**
+	 * Breadth-first search backward from every goal state, along the
+	 * reversed edges of the abstract state space.
+	 */
+	private short[] build() {
+		int size = (int)entries;
+
+		//predecessor lists, packed: those of state i are at predecessors[first[i] .. first[i + 1])
+		int[] first = new int[size + 1];
+		edges(first, null);
+		for(int i = 0; i < size; i++) {
+			first[i + 1] += first[i];
+		}
+		int[] predecessors = new int[first[size]];
+		edges(first.clone(), predecessors);
+		return search(first, predecessors);
+	}
+
+	/**
+	 * Visits every edge of the abstract state space. Without predecessors it
+	 * counts the edges into each state in next[state + 1]. Otherwise it stores
+	 * each edge's source at next[target], and advances next[target].
+	 */
+	private void edges(int[] next, int[] predecessors) {
+		for(int i = 0; i < entries; i++) {
+			long state = state(i);
+			for(GroundAct op : ops) {
+				if(!op.applies(state)) {
+					continue;
+				}
+				long to = index(op.getAct().apply(state, encoding));
+				if(to < 0) {
+					continue;
+				}
+				if(predecessors == null) {
+					next[(int)to + 1]++;
+				} else {
+					predecessors[next[(int)to]++] = i;
+				}
+			}
+		}
+	}
+
+	private short[] search(int[] first, int[] predecessors) {
+		int size = first.length - 1;
+		short[] distance = new short[size];
+		int[] queue = new int[size];
+		int head = 0;
+		int tail = 0;
+		for(int i = 0; i < size; i++) {
+			distance[i] = UNREACHABLE;
+			if((state(i) & goalMask) == goalState) {
+				distance[i] = 0;
+				queue[tail++] = i;
+			}
+		}
+		while(head < tail) {
+			int i = queue[head++];
+			short next = (short)Math.min(distance[i] + 1, Short.MAX_VALUE);
+			for(int p = first[i]; p < first[i + 1]; p++) {
+				int pred = predecessors[p];
+				if(distance[pred] == UNREACHABLE) {
+					distance[pred] = next;
+					queue[tail++] = pred;
+				}
+			}
+		}
+		return distance;
+	}
+
+	/**
+	 *
+	 * @return The abstract state of a packed state, or -1 if the database does not cover it
+	 */
+	private long index(long state) {
+		int peasants = PackedState.peasants(state);
+		int load = encoding.getCargoAmount();
+		int gold = PackedState.gold(state) / load;
+		int wood = PackedState.wood(state) / load;
+		if(peasants < 1 || peasants > encoding.getSlotCount() || gold > goldUnits || wood > woodUnits) {
+			return -1;
+		}
+		int config = 0;
+		for(int slot = peasants - 1; slot >= 0; slot--) {
+			int location = PackedState.location(state, slot);
+			int cargo = PackedState.cargo(state, slot);
+			if(location == PackedState.NOWHERE || cargo > PackedState.WOOD) {
+				return -1;
+			}
+			config = config * PLACES + (location - 1) * 3 + cargo;
+		}
+		config += configStart[peasants];
+		return ((long)config * (goldUnits + 1) + gold) * (woodUnits + 1) + wood;
+	}
+
+	/**
+	 *
+	 * @return The packed state of an abstract state
+	 */
+	private long state(int index) {
+		int wood = index % (woodUnits + 1);
+		index /= woodUnits + 1;
+		int gold = index % (goldUnits + 1);
+		int config = index / (goldUnits + 1);
+		int peasants = 1;
+		while(config >= configStart[peasants + 1]) {
+			peasants++;
+		}
+		config -= configStart[peasants];
+		long state = PackedState.withPeasants(0, peasants);
+		for(int slot = 0; slot < peasants; slot++) {
+			int place = config % PLACES;
+			config /= PLACES;
+			state = PackedState.withLocation(state, slot, place / 3 + 1);
+			state = PackedState.withCargo(state, slot, place % 3);
+		}
+		state = PackedState.withGold(state, gold * encoding.getCargoAmount());
+		return PackedState.withWood(state, wood * encoding.getCargoAmount());
+	}
+
+	/**
+	 * Identifies the problem: the goal, the encoding and the acts.
+	 */
+	private long signature() {
+		long h = MAGIC;
+		h = h * 31 + goalState;
+		h = h * 31 + goalMask;
+		h = h * 31 + encoding.getSlotCount();
+		h = h * 31 + encoding.getCargoAmount();
+		ArrayList<PartialState> alternatives = new ArrayList<PartialState>();
+		for(Act act : acts) {
+			alternatives.clear();
+			act.preconditions(encoding, alternatives);
+			h = h * 31 + act.getKind().ordinal();
+			for(PartialState pre : alternatives) {
+				long before = pre.getValue();
+				for(ResourceType resource : RESOURCES) {
+					before = PackedState.withAmount(before, resource, act.required(resource));
+				}
+				h = h * 31 + pre.hashCode();
+				h = h * 31 + act.apply(before, encoding);
+			}
+			for(ResourceType resource : RESOURCES) {
+				h = h * 31 + act.required(resource);
+			}
+		}
+		return h;
+	}
+
+	/**
+	 * Writes the database to a temporary file first, so that a run that stops
+	 * halfway does not leave a truncated database behind.
+	 */
+	private void save(File file, short[] built) throws IOException {
+		File directory = file.getAbsoluteFile().getParentFile();
+		if(!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create " + directory);
+		}
+		File temp = File.createTempFile("pdb", ".tmp", directory);
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeLong(signature());
+			out.writeLong(entries);
+			for(short d : built) {
+				out.writeShort(d);
+			}
+		} finally {
+			out.close();
+		}
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 *
+	 * @return True if the file holds this database and is now mapped
+	 */
+	private boolean map(File file) {
+		if(!file.isFile() || file.length() != HEADER + 2 * entries) {
+			return false;
+		}
+		try {
+			FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			try {
+				ByteBuffer header = ByteBuffer.allocate(HEADER);
+				channel.read(header, 0);
+				header.flip();
+				if(header.getInt() != MAGIC || header.getLong() != signature() || header.getLong() != entries) {
+					return false;
+				}
+				distances = channel.map(FileChannel.MapMode.READ_ONLY, HEADER, 2 * entries).asShortBuffer();
+				source = "mapped from " + file;
+				return true;
+			} finally {
+				channel.close(); //the mapping stays valid
+			}
+		} catch(IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+}
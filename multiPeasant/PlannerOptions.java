@@ -0,0 +1,64 @@
+import java.util.HashMap;
+
+/**
+ * Optional planner settings given as key=value agent arguments after the
+ * target amounts, e.g. "queue=bucket".
+ */
+public class PlannerOptions {
+
+	private HashMap<String, String> values = new HashMap<String, String>();
+
+	/**
+	 *
+	 * @param arguments - The agent arguments
+	 * @param first - Index of the first key=value argument
+	 */
+	public PlannerOptions(String[] arguments, int first) {
+		for(int i = first; i < arguments.length; i++) {
+			int split = arguments[i].indexOf('=');
+			if(split <= 0) {
+				throw new IllegalArgumentException("Expected key=value but got " + arguments[i]);
+			}
+			values.put(arguments[i].substring(0, split).trim().toLowerCase(), arguments[i].substring(split + 1).trim());
+		}
+	}
+
+	public String get(String key, String defaultValue) {
+		String value = values.get(key);
+		return value == null ? defaultValue : value;
+	}
+
+	public int getInt(String key, int defaultValue) {
+		String value = values.get(key);
+		return value == null ? defaultValue : Integer.parseInt(value);
+	}
+
+	public long getLong(String key, long defaultValue) {
+		String value = values.get(key);
+		return value == null ? defaultValue : Long.parseLong(value);
+	}
+
+	public double getDouble(String key, double defaultValue) {
+		String value = values.get(key);
+		return value == null ? defaultValue : Double.parseDouble(value);
+	}
+
+	public boolean getBoolean(String key, boolean defaultValue) {
+		String value = values.get(key);
+		return value == null ? defaultValue : Boolean.parseBoolean(value);
+	}
+
+	/**
+	 *
+	 * @return The value of key, which must be one of choices
+	 */
+	public String choice(String key, String defaultValue, String... choices) {
+		String value = get(key, defaultValue).toLowerCase();
+		for(String choice : choices) {
+			if(choice.equals(value)) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Unknown " + key + " " + value);
+	}
+}
@@ -0,0 +1,282 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Goal-directed planning. Regression searches backward from the goal through
+ * the acts' regress methods, over partial states, until the initial state
+ * satisfies one. The goal only constrains the townhall's stock, so backward
+ * states stay small.
+ *
+ * The bidirectional mode alternates one forward A* expansion with one backward
+ * expansion and stops when a forward state satisfies a backward partial state.
+ * It returns the first meeting, which is not necessarily the shortest plan.
+ */
+public class RegressionSearch {
+
+	private static final Logger logger = Logger.getLogger(RegressionSearch.class.getCanonicalName());
+
+	private PackedState encoding;
+	private List<Act> acts;
+	private TieBreak tieBreak;
+
+	private LookupPriorityQueue<Backward> open = new LookupPriorityQueue<Backward>();
+	private HashSet<PartialState> closed = new HashSet<PartialState>();
+	private ArrayList<PartialState> regressed = new ArrayList<PartialState>();
+	private SearchStats stats = new SearchStats();
+
+	//bidirectional
+	private HashMap<Long, HashMap<Long, Backward>> backwardByMask = new HashMap<Long, HashMap<Long, Backward>>();
+	private HashMap<Long, HashMap<Long, Node>> forwardByMask = new HashMap<Long, HashMap<Long, Node>>();
+	private ArrayList<Node> forwardSeen = new ArrayList<Node>();
+
+	/**
+	 * A backward node. act leads from state into next.state, so following next
+	 * from any node reads the plan forward.
+	 */
+	private static class Backward implements Comparable<Backward> {
+		private PartialState state;
+		private Backward next;
+		private Act act;
+		private int costToGoal; //g of the backward search
+		private int costFromInit; //its heuristic
+		private long order;
+
+		private Backward(PartialState state, Backward next, Act act, int costToGoal, int costFromInit, long order) {
+			this.state = state;
+			this.next = next;
+			this.act = act;
+			this.costToGoal = costToGoal;
+			this.costFromInit = costFromInit;
+			this.order = order;
+		}
+
+		@Override
+		public int compareTo(Backward o) {
+			int f = costToGoal + costFromInit;
+			int of = o.costToGoal + o.costFromInit;
+			if(f != of) {
+				return f < of ? -1 : 1;
+			}
+			if(costFromInit != o.costFromInit) {
+				return costFromInit < o.costFromInit ? -1 : 1;
+			}
+			return Long.compare(order, o.order);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Backward && ((Backward)obj).state.equals(state);
+		}
+
+		@Override
+		public int hashCode() {
+			return state.hashCode();
+		}
+	}
+
+	/**
+	 *
+	 * @param encoding - The state encoding of the problem
+	 * @param acts - The ground acts to regress through
+	 * @param tieBreak - The order of the forward open list in bidirectional mode
+	 */
+	public RegressionSearch(PackedState encoding, List<Act> acts, TieBreak tieBreak) {
+		this.encoding = encoding;
+		this.acts = acts;
+		this.tieBreak = tieBreak;
+	}
+
+	/**
+	 *
+	 * @param init - The packed initial state
+	 * @param goal - The goal
+	 * @return The plan, or null if there is none
+	 */
+	public List<Act> search(long init, PartialState goal) {
+		open.add(new Backward(goal, null, null, 0, estimate(goal), stats.generated()));
+		while(true) {
+			Backward node = open.poll();
+			if(node == null) {
+				return null;
+			}
+			if(node.state.satisfiedBy(init)) {
+				if(logger.isLoggable(Level.FINE)) {
+					logger.fine("Regression: " + stats);
+				}
+				return planFrom(node);
+			}
+			expand(node);
+		}
+	}
+
+	/**
+	 *
+	 * @param forward - The forward state space
+	 * @param root - The initial node
+	 * @param goal - The goal
+	 * @return The plan, or null if there is none
+	 */
+	public List<Act> searchBidirectional(SearchProblem forward, Node root, PartialState goal) {
+		LookupPriorityQueue<Node> forwardOpen = new LookupPriorityQueue<Node>(tieBreak);
+		HashSet<Node> forwardClosed = new HashSet<Node>();
+		ArrayList<Node> successors = new ArrayList<Node>();
+		SearchStats forwardStats = new SearchStats();
+
+		Backward start = new Backward(goal, null, null, 0, estimate(goal), stats.generated());
+		open.add(start);
+		indexBackward(start);
+		root.setOrder(forwardStats.generated());
+		forwardOpen.add(root);
+		List<Act> plan = meetForward(root);
+
+		while(plan == null && !(open.isEmpty() && forwardOpen.isEmpty())) {
+			Node node = forwardOpen.poll();
+			if(node != null && !forwardClosed.contains(node)) {
+				forwardClosed.add(node);
+				forwardStats.expanded();
+				successors.clear();
+				forward.expand(node, successors);
+				for(Node n : successors) {
+					if(forwardClosed.contains(n)) {
+						continue;
+					}
+					n.setOrder(forwardStats.generated());
+					Node toCompare = forwardOpen.get(n);
+					if(toCompare == null) {
+						forwardOpen.add(n);
+					} else if(toCompare.getCostToNode() > n.getCostToNode()) {
+						forwardOpen.decreaseKey(n);
+					}
+					plan = meetForward(n);
+					if(plan != null) {
+						break;
+					}
+				}
+			}
+
+			Backward back = plan == null ? open.poll() : null;
+			if(back != null) {
+				for(Backward b : expand(back)) {
+					indexBackward(b);
+					plan = meetBackward(b);
+					if(plan != null) {
+						break;
+					}
+				}
+			}
+		}
+
+		if(logger.isLoggable(Level.FINE)) {
+			logger.fine("Bidirectional: forward " + forwardStats + "; backward " + stats);
+		}
+		return plan;
+	}
+
+	/**
+	 * Expands a backward node.
+	 *
+	 * @return The newly queued predecessors
+	 */
+	private List<Backward> expand(Backward node) {
+		List<Backward> queued = new ArrayList<Backward>();
+		if(!closed.add(node.state)) {
+			return queued;
+		}
+		stats.expanded();
+		for(Act act : acts) {
+			regressed.clear();
+			act.regress(node.state, encoding, regressed);
+			for(PartialState pre : regressed) {
+				if(closed.contains(pre)) {
+					continue;
+				}
+				Backward b = new Backward(pre, node, act, node.costToGoal + 1, estimate(pre), stats.generated());
+				Backward toCompare = open.get(b);
+				if(toCompare == null) {
+					open.add(b);
+					queued.add(b);
+				} else if(toCompare.costToGoal > b.costToGoal) {
+					open.decreaseKey(b);
+					queued.add(b);
+				}
+			}
+		}
+		return queued;
+	}
+
+	/**
+	 * Lower bound on the acts from the initial state to a partial state: every
+	 * load of the required stock is a trip of four acts.
+	 */
+	private int estimate(PartialState state) {
+		int load = encoding.getCargoAmount();
+		int trips = 0;
+		if(state.constrains(PackedState.GOLD_MASK)) {
+			trips += (PackedState.gold(state.getValue()) + load - 1) / load;
+		}
+		if(state.constrains(PackedState.WOOD_MASK)) {
+			trips += (PackedState.wood(state.getValue()) + load - 1) / load;
+		}
+		return 4 * trips;
+	}
+
+	private void indexBackward(Backward b) {
+		long mask = b.state.getMask();
+		HashMap<Long, Backward> index = backwardByMask.get(mask);
+		if(index == null) {
+			index = new HashMap<Long, Backward>();
+			backwardByMask.put(mask, index);
+			HashMap<Long, Node> forwardIndex = new HashMap<Long, Node>();
+			for(Node n : forwardSeen) {
+				forwardIndex.put(n.getState() & mask, n);
+			}
+			forwardByMask.put(mask, forwardIndex);
+		}
+		Backward known = index.get(b.state.getValue());
+		if(known == null || known.costToGoal > b.costToGoal) {
+			index.put(b.state.getValue(), b);
+		}
+	}
+
+	private List<Act> meetForward(Node n) {
+		forwardSeen.add(n);
+		List<Act> plan = null;
+		for(Map.Entry<Long, HashMap<Long, Node>> entry : forwardByMask.entrySet()) {
+			long masked = n.getState() & entry.getKey();
+			entry.getValue().put(masked, n);
+			Backward b = backwardByMask.get(entry.getKey()).get(masked);
+			if(plan == null && b != null) {
+				plan = join(n, b);
+			}
+		}
+		return plan;
+	}
+
+	private List<Act> meetBackward(Backward b) {
+		Node n = forwardByMask.get(b.state.getMask()).get(b.state.getValue());
+		return n == null ? null : join(n, b);
+	}
+
+	private List<Act> join(Node forward, Backward backward) {
+		LinkedList<Act> plan = new LinkedList<Act>();
+		for(Node n = forward; n.getParentNode() != null; n = n.getParentNode()) {
+			plan.addFirst(n.getToState());
+		}
+		plan.addAll(planFrom(backward));
+		return plan;
+	}
+
+	private List<Act> planFrom(Backward node) {
+		List<Act> plan = new ArrayList<Act>();
+		for(Backward b = node; b.next != null; b = b.next) {
+			plan.add(b.act);
+		}
+		return plan;
+	}
+}
@@ -0,0 +1,427 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.cwru.sepia.environment.model.state.ResourceType;
+
+/**
+ * Relaxed planning graph heuristics computed from the acts' preconditions
+ * and effects. Facts are the values of the peasant count and of each
+ * peasant's location and cargo. Relaxed acts add facts and never delete them.
+ * The townhall's stock only grows in the relaxation, so spending is ignored.
+ * States that GroundAct.deadEnd rules out get INFINITE.
+ *
+ * Relaxed acts can be reused for free, but a deposit cannot. Before one
+ * deposit can be repeated, its peasants have to get back to its
+ * preconditions. Each act that adds stock gets a period: the act plus the
+ * fewest acts that lead from its effects back to its preconditions. A stock
+ * goal of n deposits then costs the first deposit plus n - 1 periods.
+ *
+ * Modes:
+ * - hadd sums the costs of the goal facts.
+ * - hff counts the acts of a relaxed plan extracted from the cheapest
+ *   supporters. Acts the plan shares are counted once, and the gold its acts
+ *   spend is added to the gold still needed.
+ * - hmax takes the most expensive goal. It charges the stock goals only
+ *   the fewest deposits of the largest load, each separated by the shortest
+ *   way from any deposit's effects back to any deposit's preconditions. Every
+ *   part is a lower bound, so it is admissible.
+ *
+ * The graph depends on the stock only through the amounts acts require. It is
+ * built once per group of states that differ only in stock beyond those
+ * amounts, and cached.
+ */
+public class RelaxedPlanHeuristic implements Heuristic {
+
+	public enum Mode {
+		HADD, HFF, HMAX
+	}
+
+	private static final int INFINITE = GroundAct.INFINITE;
+	private static final long AMOUNTS = GroundAct.AMOUNTS;
+	private static final ResourceType[] RESOURCES = GroundAct.RESOURCES;
+	private static final int ATOMS = GroundAct.ATOMS;
+
+	/**
+	 * Cost of every fact and act from one group of states.
+	 */
+	private static class Graph {
+		private int[] atomCost = new int[ATOMS];
+		private int[] supporter = new int[ATOMS];
+		private int[] opCost;
+	}
+
+	private Mode mode;
+	private long goalState;
+	private long goalMask;
+	private int goalAtoms;
+
+	private List<GroundAct> ops;
+	private int slots;
+	private ArrayList<ArrayList<Integer>> achievers = new ArrayList<ArrayList<Integer>>(); //by resource
+	private int[] maxDelta = new int[RESOURCES.length];
+	private int[] separation = new int[RESOURCES.length]; //shortest period between two deposits
+	private int[] maxRequired = new int[RESOURCES.length];
+
+	private ConcurrentHashMap<Long, Graph> graphs = new ConcurrentHashMap<Long, Graph>();
+	private AtomicLong evaluations = new AtomicLong();
+
+	/**
+	 *
+	 * @param encoding - The state encoding of the problem
+	 * @param acts - The ground acts available to the planner
+	 * @param goalState - The packed goal
+	 * @param goalMask - The fields the goal constrains
+	 * @param mode - How to combine the costs
+	 */
+	public RelaxedPlanHeuristic(PackedState encoding, List<Act> acts, long goalState, long goalMask, Mode mode) {
+		this.mode = mode;
+		this.goalState = goalState;
+		this.goalMask = goalMask;
+		goalAtoms = GroundAct.atoms(goalState, goalMask & ~AMOUNTS);
+
+		ops = GroundAct.ground(encoding, acts);
+		slots = encoding.getSlotCount();
+		for(int r = 0; r < RESOURCES.length; r++) {
+			achievers.add(new ArrayList<Integer>());
+			separation[r] = INFINITE;
+		}
+		for(int i = 0; i < ops.size(); i++) {
+			GroundAct op = ops.get(i);
+			for(int r = 0; r < RESOURCES.length; r++) {
+				maxRequired[r] = Math.max(maxRequired[r], op.getRequired(r));
+				if(op.getDelta(r) > 0) {
+					achievers.get(r).add(i);
+					maxDelta[r] = Math.max(maxDelta[r], op.getDelta(r));
+				}
+			}
+		}
+		for(int r = 0; r < RESOURCES.length; r++) {
+			for(int a : achievers.get(r)) {
+				for(int b : achievers.get(r)) {
+					separation[r] = Math.min(separation[r], 1 + GroundAct.distance(ops.get(a), ops.get(b), ops));
+				}
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @return The acts of a planner that moves its peasants as one group: the
+	 * steps of every round trip, and building a peasant
+	 */
+	public static List<Act> groupActs(PackedState encoding, int peasantCost) {
+		List<Act> acts = new ArrayList<Act>();
+		int[] ids = new int[encoding.getSlotCount()];
+		for(int i = 0; i < ids.length; i++) {
+			ids[i] = encoding.getPeasantID(i);
+		}
+		for(int count = 1; count <= ids.length; count++) {
+			for(ResourceType resource : RESOURCES) {
+				acts.addAll(Macro.roundTrip(Arrays.copyOf(ids, count), resource, encoding.getCargoAmount()).getSteps());
+			}
+		}
+		acts.add(new BuildPeasant(peasantCost));
+		return acts;
+	}
+
+	@Override
+	public int estimate(long state) {
+		evaluations.incrementAndGet();
+		if(GroundAct.deadEnd(state, goalState, goalMask, ops, slots)) {
+			return INFINITE;
+		}
+		Graph graph = graph(state);
+		int[] need = need(state);
+
+		if(mode == Mode.HFF) {
+			return extract(graph, state, need, new boolean[ops.size()]);
+		}
+		int h = 0;
+		for(int atom = 0; atom < ATOMS; atom++) {
+			if((goalAtoms & (1 << atom)) != 0) {
+				h = combine(h, graph.atomCost[atom]);
+			}
+		}
+		for(int r = 0; r < RESOURCES.length; r++) {
+			h = combine(h, stockCost(graph, r, need[r]));
+		}
+		return Math.min(h, INFINITE);
+	}
+
+	/**
+	 * The helpful acts of FF: those of the relaxed plan that apply in state.
+	 * The plan is extracted in every mode.
+	 */
+	@Override
+	public int helpful(long state) {
+		boolean[] used = new boolean[ops.size()];
+		extract(graph(state), state, need(state), used);
+		return applicable(state, used);
+	}
+
+	/**
+	 * In hFF mode the relaxed plan is extracted once for both.
+	 */
+	@Override
+	public int estimate(long state, int[] helpful) {
+		if(mode != Mode.HFF) {
+			helpful[0] = helpful(state);
+			return estimate(state);
+		}
+		evaluations.incrementAndGet();
+		if(GroundAct.deadEnd(state, goalState, goalMask, ops, slots)) {
+			helpful[0] = 0;
+			return INFINITE;
+		}
+		boolean[] used = new boolean[ops.size()];
+		int h = extract(graph(state), state, need(state), used);
+		helpful[0] = applicable(state, used);
+		return h;
+	}
+
+	/**
+	 *
+	 * @return The progress of the acts in used that apply in state
+	 */
+	private int applicable(long state, boolean[] used) {
+		int helpful = 0;
+		for(int i = 0; i < used.length; i++) {
+			if(used[i] && ops.get(i).applies(state)) {
+				helpful |= ops.get(i).getProgress();
+			}
+		}
+		return helpful;
+	}
+
+	/**
+	 *
+	 * @return The number of estimates and of graphs built
+	 */
+	@Override
+	public String toString() {
+		return mode.toString().toLowerCase() + ", " + evaluations.get() + " estimates, " + graphs.size() + " graphs";
+	}
+
+	private Graph graph(long state) {
+		long key = state & ~AMOUNTS;
+		key = PackedState.withGold(key, Math.min(PackedState.gold(state), maxRequired[0]));
+		key = PackedState.withWood(key, Math.min(PackedState.wood(state), maxRequired[1]));
+		Graph graph = graphs.get(key);
+		if(graph == null) {
+			graph = build(state);
+			graphs.put(key, graph);
+		}
+		return graph;
+	}
+
+	/**
+	 *
+	 * @return The stock still missing from the goal, by resource
+	 */
+	private int[] need(long state) {
+		int[] need = new int[RESOURCES.length];
+		for(int r = 0; r < RESOURCES.length; r++) {
+			if((goalMask & PackedState.amountMask(RESOURCES[r])) != 0) {
+				need[r] = Math.max(0, PackedState.amount(goalState, RESOURCES[r]) - PackedState.amount(state, RESOURCES[r]));
+			}
+		}
+		return need;
+	}
+
+	/**
+	 * Relaxed reachability from one state, by cost.
+	 */
+	private Graph build(long state) {
+		Graph graph = new Graph();
+		graph.opCost = new int[ops.size()];
+		int initial = GroundAct.atoms(state);
+		for(int atom = 0; atom < ATOMS; atom++) {
+			graph.atomCost[atom] = (initial & (1 << atom)) != 0 ? 0 : INFINITE;
+			graph.supporter[atom] = -1;
+		}
+		Arrays.fill(graph.opCost, INFINITE);
+
+		boolean changed = true;
+		while(changed) {
+			changed = false;
+			for(int i = 0; i < ops.size(); i++) {
+				GroundAct op = ops.get(i);
+				int cost = 0;
+				for(int atom = 0; atom < ATOMS && cost < INFINITE; atom++) {
+					if((op.getPreAtoms() & (1 << atom)) != 0) {
+						cost = combine(cost, graph.atomCost[atom]);
+					}
+				}
+				for(int r = 0; r < RESOURCES.length && cost < INFINITE; r++) {
+					int missing = op.getRequired(r) - PackedState.amount(state, RESOURCES[r]);
+					if(missing > 0) {
+						cost = combine(cost, stockCost(graph, r, missing));
+					}
+				}
+				if(cost >= INFINITE || cost + 1 >= graph.opCost[i]) {
+					continue;
+				}
+				graph.opCost[i] = cost + 1;
+				changed = true;
+				for(int atom = 0; atom < ATOMS; atom++) {
+					if((op.getAddAtoms() & (1 << atom)) != 0 && cost + 1 < graph.atomCost[atom]) {
+						graph.atomCost[atom] = cost + 1;
+						graph.supporter[atom] = i;
+					}
+				}
+			}
+		}
+		return graph;
+	}
+
+	/**
+	 * The cost of adding amount of a resource to the townhall.
+	 */
+	private int stockCost(Graph graph, int r, int amount) {
+		if(amount <= 0) {
+			return 0;
+		}
+		if(mode == Mode.HMAX) {
+			int first = INFINITE;
+			for(int a : achievers.get(r)) {
+				first = Math.min(first, graph.opCost[a]);
+			}
+			int deposits = (amount + maxDelta[r] - 1) / maxDelta[r];
+			return first >= INFINITE ? INFINITE : first + (deposits - 1) * separation[r];
+		}
+		int best = INFINITE;
+		for(int a : achievers.get(r)) {
+			best = Math.min(best, repeated(graph, ops.get(a), graph.opCost[a], amount));
+		}
+		return best;
+	}
+
+	/**
+	 * The cost of adding amount through op alone.
+	 */
+	private static int repeated(Graph graph, GroundAct op, int first, int amount) {
+		int deposits = 0;
+		for(int r = 0; r < RESOURCES.length; r++) {
+			if(op.getDelta(r) > 0) {
+				deposits = (amount + op.getDelta(r) - 1) / op.getDelta(r);
+			}
+		}
+		if(first >= INFINITE || (deposits > 1 && op.getPeriod() >= INFINITE)) {
+			return INFINITE;
+		}
+		return first + (deposits - 1) * op.getPeriod();
+	}
+
+	/**
+	 * Extracts a relaxed plan and counts its acts, repeating the deposits the
+	 * stock goals and the plan's own spending call for. Each stock goal takes
+	 * the deposit that adds the fewest acts to the plan so far.
+	 *
+	 * @param used - Receives the acts of the plan
+	 */
+	private int extract(Graph graph, long state, int[] goalNeed, boolean[] used) {
+		int initial = GroundAct.atoms(state);
+		int acts = support(graph, goalAtoms & ~initial, initial, used);
+		if(acts >= INFINITE) {
+			return INFINITE;
+		}
+
+		int[] depositor = new int[RESOURCES.length];
+		int[] need = new int[RESOURCES.length];
+		boolean changed = true;
+		while(changed) {
+			changed = false;
+			for(int r = 0; r < RESOURCES.length; r++) {
+				need[r] = needed(graph, state, r, goalNeed[r], used);
+				depositor[r] = -1;
+				if(need[r] <= 0) {
+					continue;
+				}
+				int best = INFINITE;
+				for(int a : achievers.get(r)) {
+					int first = used[a] ? 0 : 1 + support(graph, ops.get(a).getPreAtoms() & ~initial, initial, used.clone());
+					int cost = repeated(graph, ops.get(a), first, need[r]);
+					if(cost < best) {
+						best = cost;
+						depositor[r] = a;
+					}
+				}
+				if(depositor[r] < 0) {
+					return INFINITE;
+				}
+				if(!used[depositor[r]]) {
+					used[depositor[r]] = true;
+					acts += 1;
+					acts += support(graph, ops.get(depositor[r]).getPreAtoms() & ~initial, initial, used);
+					if(acts >= INFINITE) {
+						return INFINITE;
+					}
+					changed = true;
+				}
+			}
+		}
+		for(int r = 0; r < RESOURCES.length; r++) {
+			if(depositor[r] >= 0) {
+				GroundAct op = ops.get(depositor[r]);
+				acts += ((need[r] + op.getDelta(r) - 1) / op.getDelta(r) - 1) * op.getPeriod();
+			}
+		}
+		return Math.min(acts, INFINITE);
+	}
+
+	/**
+	 * Marks the supporters of the open atoms, and theirs, as used.
+	 *
+	 * @return The number of acts newly marked
+	 */
+	private int support(Graph graph, int open, int initial, boolean[] used) {
+		int acts = 0;
+		int reached = initial;
+		while(open != 0) {
+			int atom = Integer.numberOfTrailingZeros(open);
+			open &= ~(1 << atom);
+			reached |= 1 << atom;
+			int i = graph.supporter[atom];
+			if(i < 0) {
+				return INFINITE;
+			}
+			if(used[i]) {
+				continue;
+			}
+			used[i] = true;
+			acts++;
+			open |= ops.get(i).getPreAtoms() & ~reached;
+		}
+		return acts;
+	}
+
+	/**
+	 *
+	 * @return The amount of the resource still to deposit: the goal's, plus what
+	 * the used acts spend, but at least what they require
+	 */
+	private int needed(Graph graph, long state, int r, int goalNeed, boolean[] used) {
+		int need = goalNeed;
+		int required = 0;
+		for(int i = 0; i < used.length; i++) {
+			if(used[i]) {
+				GroundAct op = ops.get(i);
+				if(op.getDelta(r) < 0) {
+					need -= op.getDelta(r);
+				}
+				required = Math.max(required, op.getRequired(r) - PackedState.amount(state, RESOURCES[r]));
+			}
+		}
+		return Math.max(need, required);
+	}
+
+	private int combine(int a, int b) {
+		if(a >= INFINITE || b >= INFINITE) {
+			return INFINITE;
+		}
+		return mode == Mode.HMAX ? Math.max(a, b) : a + b;
+	}
+}
@@ -0,0 +1,29 @@
+import java.util.List;
+
+/**
+ * The state space a planner searches. Search engines other than the planner's
+ * own A* loop use it to test and expand nodes, so expand must not touch any
+ * search state and must be safe to call from several threads at once.
+ */
+public interface SearchProblem {
+
+	public boolean isGoal(Node node);
+
+	/**
+	 * Generates the successors of a node with their costs and heuristic values.
+	 * 
+	 * @param node - The node to expand
+	 * @param successors - Receives the successors
+	 */
+	public void expand(Node node, List<Node> successors);
+
+	/**
+	 * The successors whose act achieves a fact the heuristic calls helpful,
+	 * as FF's helpful actions.
+	 *
+	 * @param node - The expanded node
+	 * @param successors - Its successors
+	 * @return The helpful successors, or all of them if the heuristic does not name any facts
+	 */
+	public List<Node> helpful(Node node, List<Node> successors);
+}
@@ -0,0 +1,67 @@
+/**
+ * Counters of one search run, reported through the planner's logger.
+ */
+public class SearchStats {
+
+	private long expanded;
+	private long generated;
+	private long plateauOpen;
+
+	public void expanded() {
+		expanded++;
+	}
+
+	/**
+	 *
+	 * @return The number of nodes generated so far, before counting this one
+	 */
+	public long generated() {
+		return generated++;
+	}
+
+	/**
+	 * Adds the counts of another run, e.g. of another worker of the same search.
+	 */
+	public void add(SearchStats other) {
+		expanded += other.expanded;
+		generated += other.generated;
+		plateauOpen += other.plateauOpen;
+	}
+
+	public long getExpanded() {
+		return expanded;
+	}
+
+	public long getGenerated() {
+		return generated;
+	}
+
+	/**
+	 * Counts the open nodes that tie with the goal on f. This is not a
+	 * measurement of the expansions the tie-breaking saved, only an upper bound
+	 * on them. A* with the worst tie-breaking would expand every one of them
+	 * before the goal, while another order may have expanded some of them
+	 * already or never generated them.
+	 *
+	 * @param open - The open list when the goal was found
+	 * @param goal - The goal node
+	 */
+	public void countPlateau(OpenList<Node> open, Node goal) {
+		int f = goal.getCostToNode() + goal.getCostToGoal();
+		plateauOpen = 0;
+		for(Node n : open) {
+			if(n.getCostToNode() + n.getCostToGoal() == f) {
+				plateauOpen++;
+			}
+		}
+	}
+
+	public long getPlateauOpen() {
+		return plateauOpen;
+	}
+
+	@Override
+	public String toString() {
+		return "expanded " + expanded + ", generated " + generated + ", plateau nodes left open " + plateauOpen;
+	}
+}
@@ -0,0 +1,67 @@
+import java.util.Comparator;
+
+/**
+ * Orders open nodes by f and then by a configurable tie-breaking policy, so
+ * that A* does not walk plateaus of equal f in arbitrary order.
+ *
+ * Within one f value a lower h is the same as a higher g, so "h" and "g" select
+ * the same policy. Remaining ties go by insertion order, or with order "none"
+ * stay in whatever order the heap leaves them, as before this class existed.
+ */
+public class TieBreak implements Comparator<Node> {
+
+	public enum Order {FIFO, LIFO, NONE}
+
+	private boolean lowH;
+	private Order order;
+
+	/**
+	 *
+	 * @param lowH - Whether equal f prefers the lower h
+	 * @param order - How nodes with equal f, and h if used, are ordered
+	 */
+	public TieBreak(boolean lowH, Order order) {
+		this.lowH = lowH;
+		this.order = order;
+	}
+
+	/**
+	 * Reads "tiebreak=h|g|none" and "order=fifo|lifo|none".
+	 */
+	public static TieBreak fromOptions(PlannerOptions options) {
+		String prefer = options.choice("tiebreak", "h", "h", "g", "none");
+		String order = options.choice("order", "fifo", "fifo", "lifo", "none");
+		return new TieBreak(!prefer.equals("none"), Order.valueOf(order.toUpperCase()));
+	}
+
+	public boolean prefersLowH() {
+		return lowH;
+	}
+
+	public Order getOrder() {
+		return order;
+	}
+
+	@Override
+	public int compare(Node a, Node b) {
+		int fa = a.getCostToNode() + a.getCostToGoal();
+		int fb = b.getCostToNode() + b.getCostToGoal();
+		if(fa != fb) {
+			return fa < fb ? -1 : 1;
+		}
+		if(lowH && a.getCostToGoal() != b.getCostToGoal()) {
+			return a.getCostToGoal() < b.getCostToGoal() ? -1 : 1;
+		}
+		if(order == Order.FIFO) {
+			return Long.compare(a.getOrder(), b.getOrder());
+		} else if(order == Order.LIFO) {
+			return Long.compare(b.getOrder(), a.getOrder());
+		}
+		return 0;
+	}
+
+	@Override
+	public String toString() {
+		return (lowH ? "low h" : "f only") + ", " + order;
+	}
+}
@@ -0,0 +1,83 @@
+import java.util.Random;
+
+/**
+ * Zobrist keys for packed states. A state's hash is the XOR of one random key
+ * per field value, so a successor's hash follows from its parent's by XORing
+ * out the keys of the fields an act writes and XORing in their new keys.
+ */
+public class Zobrist {
+
+	private static final long[] PEASANTS = new long[PackedState.MAX_PEASANTS + 1];
+	private static final long[][] LOCATION = new long[PackedState.MAX_PEASANTS][4];
+	private static final long[][] CARGO = new long[PackedState.MAX_PEASANTS][4];
+	private static final long GOLD_SEED;
+	private static final long WOOD_SEED;
+
+	static {
+		Random random = new Random(391);
+		for(int i = 0; i < PEASANTS.length; i++) {
+			PEASANTS[i] = random.nextLong();
+		}
+		for(int slot = 0; slot < PackedState.MAX_PEASANTS; slot++) {
+			for(int i = 0; i < 4; i++) {
+				LOCATION[slot][i] = random.nextLong();
+				CARGO[slot][i] = random.nextLong();
+			}
+		}
+		GOLD_SEED = random.nextLong();
+		WOOD_SEED = random.nextLong();
+	}
+
+	public static long hash(long state) {
+		long hash = amountKey(GOLD_SEED, PackedState.gold(state))
+				^ amountKey(WOOD_SEED, PackedState.wood(state))
+				^ PEASANTS[PackedState.peasants(state)];
+		for(int slot = 0; slot < PackedState.MAX_PEASANTS; slot++) {
+			hash ^= LOCATION[slot][PackedState.location(state, slot)];
+			hash ^= CARGO[slot][PackedState.cargo(state, slot)];
+		}
+		return hash;
+	}
+
+	/**
+	 * Only the fields in written are looked at, so the cost follows the number
+	 * of fields the act changed rather than the size of the state.
+	 * 
+	 * @param hash - The hash of the parent state
+	 * @param from - The parent state
+	 * @param to - The state an act led to from the parent
+	 * @param written - The fields the act writes, as given by Act.writes
+	 * @return The hash of the new state
+	 */
+	public static long update(long hash, long from, long to, long written) {
+		if((written & PackedState.GOLD_MASK) != 0) {
+			hash ^= amountKey(GOLD_SEED, PackedState.gold(from)) ^ amountKey(GOLD_SEED, PackedState.gold(to));
+		}
+		if((written & PackedState.WOOD_MASK) != 0) {
+			hash ^= amountKey(WOOD_SEED, PackedState.wood(from)) ^ amountKey(WOOD_SEED, PackedState.wood(to));
+		}
+		if((written & PackedState.PEASANT_MASK) != 0) {
+			hash ^= PEASANTS[PackedState.peasants(from)] ^ PEASANTS[PackedState.peasants(to)];
+		}
+		for(int slot = 0; slot < PackedState.MAX_PEASANTS; slot++) {
+			if((written & PackedState.locationMask(slot)) != 0) {
+				hash ^= LOCATION[slot][PackedState.location(from, slot)] ^ LOCATION[slot][PackedState.location(to, slot)];
+			}
+			if((written & PackedState.cargoMask(slot)) != 0) {
+				hash ^= CARGO[slot][PackedState.cargo(from, slot)] ^ CARGO[slot][PackedState.cargo(to, slot)];
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * Amounts are unbounded, so their keys are mixed from the value rather than
+	 * drawn from a table (splitmix64 finalizer).
+	 */
+	private static long amountKey(long seed, int amount) {
+		long z = seed + amount * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -36,4 +36,8 @@ public class At extends Literal {
 		return false;
 	}
 	
+	@Override
+	public int hashCode() {
+		return objectID * 31 + position.hashCode();
+	}
 }
@@ -21,4 +21,9 @@ public class AtTownHall extends Literal {
 		}
 		return false;
 	}
+	
+	@Override
+	public int hashCode() {
+		return objectID;
+	}
 }
@@ -23,7 +23,6 @@ public class DepositGold extends Act {
 		return directionToTownHall;
 	}
 	
-	@Override
 	public Action act(int peasantId) {
 		return new DirectedAction(peasantId, ActionType.PRIMITIVEDEPOSIT, directionToTownHall);
 	}
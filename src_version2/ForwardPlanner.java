@@ -29,9 +29,11 @@ import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -60,7 +62,7 @@ public class ForwardPlanner extends Agent {
 	private List<Integer> townhallIds = new ArrayList<Integer>();
 	
 	private LookupPriorityQueue<Node> open = new LookupPriorityQueue<Node>();
-	private List<Node> closed = new ArrayList<Node>();
+	private Set<Node> closed = new HashSet<Node>();
 	private LinkedList<Node> solution = new LinkedList<Node>();
 	
 	private ArrayList<Literal> initLits = new ArrayList<Literal>();
@@ -165,30 +167,6 @@ public class ForwardPlanner extends Agent {
 				}
 			}
 			
-<<<<<<< HEAD
-			//Deposit Gold/Wood
-			if(hasResource && areAdjacent(node, peasantIds.get(0), townhallIds.get(0))) { //preconditions
-				peasant = node.getState().getUnit(peasantIds.get(0));
-				literals = new ArrayList<Literal>();
-				literals.addAll(node.getStateLits());
-				
-				Deposit deposit = new Deposit(peasant.getCargoAmount(),
-						getDirectionBetween(peasant, townhall),
-						peasant.getCargoType());
-				
-				Point goal = node.getGoal();
-				int estimatedCost = 99999;
-				int closestResourceID;
-				
-				if(hasWood) {
-					//generate and remove the remove list
-					ArrayList<Literal> toRemove = new ArrayList<Literal>();
-					int woodAmt = 0;
-					for(Literal lit: node.getStateLits()) {
-						if(lit.equals(new Has(peasantIds.get(0), ResourceType.WOOD, peasant.getCargoAmount()))) {
-							toRemove.add(lit);
-							woodAmt = ((Has)lit).getAmount();
-=======
 			//GotoResource
 			if(node.containsLit(new AtTownHall(peasantIds.get(0)))
 					&& !node.containsLit(new Has(peasantIds.get(0), ResourceType.GOLD, GATHER_AMOUNT))
@@ -198,7 +176,6 @@ public class ForwardPlanner extends Agent {
 					for(Literal lit : node.getStateLits()) {
 						if(!lit.equals(new AtTownHall(peasantIds.get(0)))) { //remove list
 							literalsGold.add(lit);
->>>>>>> 6cb7a56c82cd13ead45aea35aaa36a41ca3a5b67
 						}
 					}
 					literalsGold.add(new AtResource(peasantIds.get(0), ResourceType.GOLD)); //add list
@@ -532,33 +509,6 @@ public class ForwardPlanner extends Agent {
 		}
 	}
 	
-<<<<<<< HEAD
-	public boolean areAdjacent(Node node, int objOneId, int objTwoId) {
-		for(Literal lit1 : node.getStateLits()) {
-			if(lit1.getClass().toString().equals("class At")) {
-				for(Literal lit2 : node.getStateLits()) {
-					if(lit2.getClass().toString().equals("class At")) {
-						
-						At at1 = (At)lit1;
-						At at2 = (At)lit2;
-						
-						if(at1.getObjectID() == objOneId
-								&& at2.getObjectID() == objTwoId) {
-							Point p1 = at1.getPosition();
-							Point p2 = at2.getPosition();
-							
-							if(Math.abs(p1.getX() - p2.getX()) <=1
-									&& Math.abs(p1.getY() - p2.getY()) <=1 ) {
-								return true;
-							}
-						}
-					}
-				}
-			}
-		}
-		return false;
-	}
-=======
 //	public boolean areAdjacent(Node node, int objOneId, int objTwoId) {
 //		for(Literal lit1 : node.getStateLits()) {
 //			if(lit1.getClass().toString().equals("class At")) {
@@ -584,7 +534,6 @@ public class ForwardPlanner extends Agent {
 //		}
 //		return false;
 //	}
->>>>>>> 6cb7a56c82cd13ead45aea35aaa36a41ca3a5b67
 	
 	private void printPlan() {
 		try {
@@ -15,7 +15,6 @@ public class GatherWood extends Act {
 		this.directionToWood = dirToWood;
 	}
 	
-	@Override
 	public Action act(int peasantId) {
 		return new DirectedAction(peasantId, ActionType.PRIMITIVEGATHER, directionToWood);
 	}
@@ -3,4 +3,7 @@ public abstract class Literal {
 	@Override
 	public abstract boolean equals(Object o);
 	
+	@Override
+	public abstract int hashCode();
+	
 }
@@ -12,7 +12,6 @@ public class Move extends Act {
 		this.direction = direction;
 	}
 
-	@Override
 	public Action act(int peasantId) {
 		return new DirectedAction(peasantId, ActionType.PRIMITIVEMOVE, direction);
 	}
@@ -7,6 +7,7 @@ public class Node implements Comparable<Object>{
 	private ArrayList<Literal> stateLits;
 	private int costToNode;
 	private int costToGoal;
+	private int stateHash;
 
 	/**
 	 * 
@@ -24,6 +25,7 @@ public class Node implements Comparable<Object>{
 		this.stateLits = stateLits;
 		this.costToNode = costToNode;
 		this.costToGoal = costToGoal;
+		this.stateHash = hashLits(stateLits);
 	}
 	
 	public Node getParentNode() {
@@ -84,6 +86,40 @@ public class Node implements Comparable<Object>{
 		}
 	}
 	
+	@Override
+	public boolean equals(Object obj) {
+		if(!(obj instanceof Node)) {
+			return false;
+		}
+		Node n = (Node)obj;
+		if(n.stateHash != this.stateHash || n.stateLits.size() != this.stateLits.size())  {
+			return false;
+		}
+		for(Literal lit : n.stateLits) {
+			if(!this.containsLit(lit)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public int hashCode() {
+		return stateHash;
+	}
+	
+	/**
+	 * Order independent hash of the state literals, so that equal states
+	 * hash alike regardless of the order their literals were added in.
+	 */
+	private static int hashLits(ArrayList<Literal> stateLits) {
+		int hash = 0;
+		for(Literal lit : stateLits) {
+			hash += lit.hashCode();
+		}
+		return hash;
+	}
+	
 //	@Override
 //	public boolean equals(Object o) {
 //		Node n = (Node)o;
@@ -30,4 +30,8 @@ public class AtResource extends Literal {
 		return false;
 	}
 	
+	@Override
+	public int hashCode() {
+		return objectID * 31 + resource.ordinal();
+	}
 }
@@ -28,9 +28,11 @@ import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -60,7 +62,7 @@ public class ForwardPlanner extends Agent {
 	private List<Integer> townhallIds = new ArrayList<Integer>();
 	
 	private LookupPriorityQueue<Node> open = new LookupPriorityQueue<Node>();
-	private List<Node> closed = new ArrayList<Node>();
+	private Set<Node> closed = new HashSet<Node>();
 	private LinkedList<Node> solution = new LinkedList<Node>();
 	
 	private ArrayList<Literal> initLits = new ArrayList<Literal>();
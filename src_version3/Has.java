@@ -35,4 +35,9 @@ public class Has extends Literal {
 		}
 		return false;
 	}
+	
+	@Override
+	public int hashCode() {
+		return (objectID * 31 + resource.ordinal()) * 31 + amount;
+	}
 }